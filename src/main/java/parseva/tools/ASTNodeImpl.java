@@ -1,40 +1,171 @@
 package parseva.tools;
 
+import java.nio.CharBuffer;
+
 import parseva.tools.api.ASTNode;
 
+/**
+ * A node of the flattened tree built by {@link AstTree}. Leaf nodes carry a
+ * token, inner nodes carry the name of the parser rule they were created from.
+ *
+ * <p>Leaf text is not copied out of the source: keywords and operators share
+ * constants, identifiers may come from an {@link IdentifierTable}, and all
+ * other tokens only remember where their text lies in the source.</p>
+ */
 public class ASTNodeImpl implements ASTNode {
+
+    private static final ASTNode[] NO_CHILDREN = new ASTNode[0];
+
+    private final int id;
+    private final int type;
+    /** Shared text, or null if the text is a slice of {@code source}. */
+    private final String text;
+    private final String source;
+    private final int textStart;
+    private final int textEnd;
+    private final int lineNumber;
+    private final int columnNumber;
+    private final ASTNodeImpl parent;
+    private final int index;
+    private ASTNode[] children = NO_CHILDREN;
+    private AstTree tree;
+    /** Index of the token in the token stream, or -1 for inner nodes. */
+    private int tokenIndex = -1;
+
+    ASTNodeImpl(int id, int type, String text, int lineNumber, int columnNumber,
+                ASTNodeImpl parent, int index) {
+        this(id, type, text, null, 0, 0, lineNumber, columnNumber, parent, index);
+    }
+
+    ASTNodeImpl(int id, int type, String source, int textStart, int textEnd,
+                int lineNumber, int columnNumber, ASTNodeImpl parent, int index) {
+        this(id, type, null, source, textStart, textEnd, lineNumber, columnNumber, parent, index);
+    }
+
+    private ASTNodeImpl(int id, int type, String text, String source, int textStart, int textEnd,
+                        int lineNumber, int columnNumber, ASTNodeImpl parent, int index) {
+        this.id = id;
+        this.type = type;
+        this.text = text;
+        this.source = source;
+        this.textStart = textStart;
+        this.textEnd = textEnd;
+        this.lineNumber = lineNumber;
+        this.columnNumber = columnNumber;
+        this.parent = parent;
+        this.index = index;
+    }
+
     @Override
     public int getType() {
-        return 0;
+        return type;
     }
 
     @Override
     public String getText() {
-        return null;
+        final String result;
+        if (text == null) {
+            result = source.substring(textStart, textEnd);
+        }
+        else {
+            result = text;
+        }
+        return result;
+    }
+
+    @Override
+    public CharSequence getTextView() {
+        final CharSequence result;
+        if (text == null) {
+            result = CharBuffer.wrap(source, textStart, textEnd);
+        }
+        else {
+            result = text;
+        }
+        return result;
     }
 
     @Override
     public int getLineNumber() {
-        return 0;
+        return lineNumber;
     }
 
     @Override
     public int getColumnNumber() {
-        return 0;
+        return columnNumber;
     }
 
     @Override
     public ASTNode[] getChildren() {
-        return new ASTNode[0];
+        return children.clone();
     }
 
     @Override
     public ASTNode getParent() {
-        return null;
+        return parent;
     }
 
     @Override
     public int getIndex() {
-        return 0;
+        return index;
+    }
+
+    @Override
+    public ASTNode[] getLeadingComments() {
+        final ASTNode[] result;
+        if (tree == null) {
+            result = NO_CHILDREN;
+        }
+        else {
+            result = tree.getLeadingComments(id);
+        }
+        return result;
+    }
+
+    @Override
+    public ASTNode[] getTrailingComments() {
+        final ASTNode[] result;
+        if (tree == null) {
+            result = NO_CHILDREN;
+        }
+        else {
+            result = tree.getTrailingComments(id);
+        }
+        return result;
+    }
+
+    /**
+     * Position of this node in the pre-order numbering of its {@link AstTree}.
+     *
+     * @return node id
+     */
+    public int getId() {
+        return id;
+    }
+
+    // Direct access to the children, for tree construction without copies.
+    ASTNode[] children() {
+        return children;
+    }
+
+    void setChildren(ASTNode[] children) {
+        this.children = children;
+    }
+
+    void setTree(AstTree tree) {
+        this.tree = tree;
+    }
+
+    int getTokenIndex() {
+        return tokenIndex;
+    }
+
+    void setTokenIndex(int tokenIndex) {
+        this.tokenIndex = tokenIndex;
+    }
+
+    @Override
+    public String toString() {
+        return NodeTypes.getName(type) + "[" + lineNumber + ":" + columnNumber + "]";
     }
 }
@@ -0,0 +1,254 @@
+package parseva.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import parseva.tools.AstExporter.Column;
+
+/**
+ * Reads a file written by {@link AstExporter}. Opening it reads only the
+ * footer with the block directory and the string tables;
+ * {@link #scan(Column, IntConsumer)} and {@link #readColumn(Column)} then read
+ * and inflate the blocks of that one column, the other columns are never
+ * touched. Not thread safe, open one reader per thread.
+ */
+public final class AstColumnReader implements Closeable {
+
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final String filename;
+    private final RandomAccessFile file;
+    private final long[][] blockOffsets;
+    private final int[][] blockLengths;
+    private final int[][] encodedLengths;
+    private final int[][] valueCounts;
+    private final String[] typeNames;
+    private final List<String> files;
+    private final String[] dictionary;
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[0];
+    private byte[] encoded = new byte[0];
+
+    private AstColumnReader(String filename) throws IOException {
+        this.filename = filename;
+        file = new RandomAccessFile(filename, "r");
+        try {
+            if (file.length() < Integer.BYTES * 3 + TRAILER_SIZE || file.readInt() != AstExporter.MAGIC) {
+                throw new IOException("Not an exported AST file: " + filename);
+            }
+            final int version = file.readInt();
+            if (version != AstExporter.VERSION) {
+                throw new IOException("Unsupported AST file version " + version + ": " + filename);
+            }
+            file.seek(file.length() - TRAILER_SIZE);
+            final long footer = file.readLong();
+            if (file.readInt() != AstExporter.MAGIC) {
+                throw new IOException("Truncated AST file: " + filename);
+            }
+            final byte[] footerBytes = new byte[(int) (file.length() - TRAILER_SIZE - footer)];
+            file.seek(footer);
+            file.readFully(footerBytes);
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(footerBytes));
+
+            final int columnCount = in.readInt();
+            blockOffsets = new long[columnCount][];
+            blockLengths = new int[columnCount][];
+            encodedLengths = new int[columnCount][];
+            valueCounts = new int[columnCount][];
+            for (int column = 0; column < columnCount; column++) {
+                final int blockCount = in.readInt();
+                blockOffsets[column] = new long[blockCount];
+                blockLengths[column] = new int[blockCount];
+                encodedLengths[column] = new int[blockCount];
+                valueCounts[column] = new int[blockCount];
+                for (int block = 0; block < blockCount; block++) {
+                    blockOffsets[column][block] = in.readLong();
+                    blockLengths[column][block] = in.readInt();
+                    encodedLengths[column][block] = in.readInt();
+                    valueCounts[column][block] = in.readInt();
+                }
+            }
+            typeNames = readStrings(in);
+            files = List.of(readStrings(in));
+            dictionary = readStrings(in);
+        }
+        catch (IOException ex) {
+            file.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Opens an exported file.
+     *
+     * @param filename file written by {@link AstExporter}
+     * @return open reader
+     * @throws IOException if the file cannot be read or has the wrong format
+     */
+    public static AstColumnReader open(String filename) throws IOException {
+        return new AstColumnReader(filename);
+    }
+
+    /**
+     * Number of rows, the total node count of all files.
+     *
+     * @return row count
+     */
+    public long getRowCount() {
+        long result = 0;
+        for (int count : valueCounts[Column.TYPE.ordinal()]) {
+            result += count;
+        }
+        return result;
+    }
+
+    /**
+     * Names of the exported files, indexed by {@link Column#FILE}.
+     *
+     * @return file names
+     */
+    public List<String> getFiles() {
+        return files;
+    }
+
+    /**
+     * Name of a {@link Column#TYPE} value, as {@link NodeTypes#getName(int)}
+     * returned it when the file was written.
+     *
+     * @param type node type
+     * @return type name
+     */
+    public String getTypeName(int type) {
+        return typeNames[type + 1];
+    }
+
+    /**
+     * Text of a {@link Column#TEXT} value.
+     *
+     * @param id dictionary id
+     * @return leaf text
+     */
+    public String getText(int id) {
+        return dictionary[id];
+    }
+
+    /**
+     * Number of distinct texts in the dictionary.
+     *
+     * @return dictionary size
+     */
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    /**
+     * Compressed size of a column in the file.
+     *
+     * @param column column
+     * @return bytes read by a scan of the column
+     */
+    public long getCompressedSize(Column column) {
+        long result = 0;
+        for (int length : blockLengths[column.ordinal()]) {
+            result += length;
+        }
+        return result;
+    }
+
+    /**
+     * Passes every value of a column to the consumer, in row order, one block
+     * in memory at a time.
+     *
+     * @param column column to scan
+     * @param consumer receiver of the values
+     * @throws IOException if a block cannot be read or is corrupt
+     */
+    public void scan(Column column, IntConsumer consumer) throws IOException {
+        final int index = column.ordinal();
+        for (int block = 0; block < blockOffsets[index].length; block++) {
+            final int length = inflate(index, block);
+            int position = 0;
+            int value = 0;
+            while (position < length) {
+                int bits = 0;
+                int shift = 0;
+                byte current;
+                do {
+                    current = encoded[position++];
+                    bits |= (current & 0x7F) << shift;
+                    shift += 7;
+                } while (current < 0);
+                value += (bits >>> 1) ^ -(bits & 1);
+                consumer.accept(value);
+            }
+        }
+    }
+
+    /**
+     * All values of a column.
+     *
+     * @param column column to read
+     * @return values in row order
+     * @throws IOException if a block cannot be read or is corrupt
+     * @throws IllegalStateException if the column has more than
+     *     {@code Integer.MAX_VALUE} rows, use {@link #scan(Column, IntConsumer)}
+     */
+    public int[] readColumn(Column column) throws IOException {
+        final long rows = getRowCount();
+        if (rows > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many rows for an array: " + rows);
+        }
+        final int[] result = new int[(int) rows];
+        final int[] size = new int[1];
+        scan(column, value -> result[size[0]++] = value);
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        file.close();
+    }
+
+    private int inflate(int column, int block) throws IOException {
+        final int length = blockLengths[column][block];
+        final int encodedLength = encodedLengths[column][block];
+        if (compressed.length < length) {
+            compressed = new byte[length];
+        }
+        if (encoded.length < encodedLength) {
+            encoded = new byte[encodedLength];
+        }
+        file.seek(blockOffsets[column][block]);
+        file.readFully(compressed, 0, length);
+        inflater.reset();
+        inflater.setInput(compressed, 0, length);
+        try {
+            if (inflater.inflate(encoded, 0, encodedLength) != encodedLength) {
+                throw new IOException("Corrupt block " + block + " of column " + column + ": " + filename);
+            }
+        }
+        catch (DataFormatException ex) {
+            throw new IOException("Corrupt block " + block + " of column " + column + ": " + filename, ex);
+        }
+        return encodedLength;
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        final String[] result = new String[in.readInt()];
+        for (int i = 0; i < result.length; i++) {
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            result[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+package parseva.tools;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Differences between two versions of a file, found by comparing the
+ * structural hashes of {@link AstTree#getHash(int)}. The current version is
+ * walked top down; a subtree that is paired with an identical subtree of the
+ * previous version is unchanged and not entered, every other node visited is
+ * reported as changed. Each old subtree is paired at most once, shallow ones
+ * first, so deleting one of two identical methods still reports it. Only the
+ * changed nodes need to be analyzed again, results for unchanged subtrees can
+ * be looked up via {@link #getOldId(int)} or a {@link SubtreeCache}.
+ */
+public final class AstDiff {
+
+    private final int[] oldIds;
+    private final int[] changedIds;
+    private final int[] removedIds;
+
+    private AstDiff(int[] oldIds, int[] changedIds, int[] removedIds) {
+        this.oldIds = oldIds;
+        this.changedIds = changedIds;
+        this.removedIds = removedIds;
+    }
+
+    /**
+     * Compares two versions of a tree.
+     *
+     * @param oldTree previous version
+     * @param newTree current version
+     * @return differences between the versions
+     */
+    public static AstDiff compute(AstTree oldTree, AstTree newTree) {
+        final Map<Long, ArrayDeque<Integer>> oldByHash = indexByHash(oldTree);
+        final boolean[] paired = new boolean[oldTree.size()];
+
+        final int[] oldIds = new int[newTree.size()];
+        Arrays.fill(oldIds, -1);
+        final AstTree.IntList changed = new AstTree.IntList();
+        int id = 0;
+        while (id < newTree.size()) {
+            final int match = pollUnpaired(oldTree, oldByHash.get(newTree.getHash(id)), paired);
+            if (match < 0) {
+                changed.add(id);
+                id++;
+            }
+            else {
+                final int end = newTree.getSubtreeEnd(id);
+                for (int offset = 0; id + offset <= end; offset++) {
+                    oldIds[id + offset] = match + offset;
+                    paired[match + offset] = true;
+                }
+                id = end + 1;
+            }
+        }
+        return new AstDiff(oldIds, changed.toArray(), unpaired(oldTree, paired));
+    }
+
+    /**
+     * Id of the identical node in the previous version.
+     *
+     * @param newId id of a node in the current version
+     * @return id in the previous version, or -1 if the node lies on a changed
+     *     path
+     */
+    public int getOldId(int newId) {
+        return oldIds[newId];
+    }
+
+    /**
+     * Whether the subtree of the given node is unchanged.
+     *
+     * @param newId id of a node in the current version
+     * @return true if an identical subtree exists in the previous version
+     */
+    public boolean isUnchanged(int newId) {
+        return oldIds[newId] >= 0;
+    }
+
+    /**
+     * Nodes of the current version that have no identical counterpart, in
+     * document order: the ancestors of every edit and the nodes it added.
+     *
+     * @return ids in the current version
+     */
+    public int[] getChangedIds() {
+        return changedIds.clone();
+    }
+
+    /**
+     * Nodes of the previous version that have no identical counterpart, in
+     * document order. Duplicates count: if two identical subtrees become
+     * one, the second is reported.
+     *
+     * @return ids in the previous version
+     */
+    public int[] getRemovedIds() {
+        return removedIds.clone();
+    }
+
+    /**
+     * Whether both versions are structurally identical.
+     *
+     * @return true if nothing changed
+     */
+    public boolean isEmpty() {
+        return changedIds.length == 0 && removedIds.length == 0;
+    }
+
+    // Ids per hash, by depth and then in document order
+    private static Map<Long, ArrayDeque<Integer>> indexByHash(AstTree tree) {
+        int maxDepth = 0;
+        for (int id = 0; id < tree.size(); id++) {
+            maxDepth = Math.max(maxDepth, tree.getDepth(id));
+        }
+        final int[] starts = new int[maxDepth + 2];
+        for (int id = 0; id < tree.size(); id++) {
+            starts[tree.getDepth(id) + 1]++;
+        }
+        for (int depth = 1; depth < starts.length; depth++) {
+            starts[depth] += starts[depth - 1];
+        }
+        final int[] order = new int[tree.size()];
+        for (int id = 0; id < tree.size(); id++) {
+            order[starts[tree.getDepth(id)]++] = id;
+        }
+
+        final Map<Long, ArrayDeque<Integer>> result = new HashMap<>();
+        for (int id : order) {
+            result.computeIfAbsent(tree.getHash(id), hash -> new ArrayDeque<>()).add(id);
+        }
+        return result;
+    }
+
+    // First candidate none of whose nodes is paired yet; rejected ones are
+    // dropped, they can never become free again
+    private static int pollUnpaired(AstTree tree, ArrayDeque<Integer> candidates, boolean... paired) {
+        int result = -1;
+        while (result < 0 && candidates != null && !candidates.isEmpty()) {
+            final int candidate = candidates.poll();
+            boolean free = true;
+            for (int id = candidate; free && id <= tree.getSubtreeEnd(candidate); id++) {
+                free = !paired[id];
+            }
+            if (free) {
+                result = candidate;
+            }
+        }
+        return result;
+    }
+
+    private static int[] unpaired(AstTree tree, boolean... paired) {
+        final AstTree.IntList result = new AstTree.IntList();
+        int id = 0;
+        while (id < tree.size()) {
+            if (paired[id]) {
+                id = tree.getSubtreeEnd(id) + 1;
+            }
+            else {
+                result.add(id);
+                id++;
+            }
+        }
+        return result.toArray();
+    }
+}
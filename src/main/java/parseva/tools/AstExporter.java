@@ -0,0 +1,347 @@
+package parseva.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+
+import org.antlr.v4.runtime.CharStreams;
+
+import parseva.tools.api.ASTNode;
+
+/**
+ * Writes the flattened trees of many files into one columnar file for bulk
+ * analysis, read back with {@link AstColumnReader}. Every node is a row; each
+ * {@link Column} is stored separately as a run of deflated blocks of
+ * delta and varint encoded ints, so a reader decodes only the columns it
+ * scans. Rows of a file are in pre-order, parent indexes are relative to the
+ * first row of their file. Leaf text that is not fixed by the token type is
+ * stored once in a string dictionary and referenced from the
+ * {@link Column#TEXT} column.
+ *
+ * <p>Layout: a header (magic, version, block size), the blocks of all
+ * columns in the order they filled up, then a footer with the block directory
+ * of each column, the node type names, the file names and the dictionary,
+ * followed by the footer offset. Strings are stored as length prefixed
+ * UTF-8. If writing a block fails, {@link #close()} leaves out the footer, so
+ * that readers reject the file as truncated.</p>
+ *
+ * <p>{@link #add(String, AstTree)} may be called from several threads, the
+ * trees are written one after another.</p>
+ */
+public final class AstExporter implements Closeable {
+
+    /**
+     * First int of an exported file.
+     */
+    static final int MAGIC = 0x50415354;
+
+    /**
+     * Format version.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Default number of values in a block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final int blockSize;
+    private final ColumnBuffer[] buffers = new ColumnBuffer[Column.values().length];
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private final byte[] deflated = new byte[64 * 1024];
+    private final List<String> files = new ArrayList<>();
+    private final Map<CharBuffer, Integer> dictionaryIds = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private long position;
+    private boolean closed;
+    private boolean failed;
+
+    /**
+     * Creates an exporter with the default block size.
+     *
+     * @param filename file to write
+     * @throws IOException if the file cannot be created
+     */
+    public AstExporter(String filename) throws IOException {
+        this(filename, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an exporter.
+     *
+     * @param filename file to write
+     * @param blockSize number of values in a block
+     * @throws IOException if the file cannot be created
+     * @throws IllegalArgumentException if the block size is not positive
+     */
+    public AstExporter(String filename, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new ColumnBuffer(blockSize);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(blockSize);
+        position = Integer.BYTES * 3;
+    }
+
+    /**
+     * Parses the given files in parallel and exports their trees. Files get
+     * their ids in iteration order, so the same batch always gives the same
+     * file. If any file fails, no output is left behind.
+     *
+     * @param filenames files to export
+     * @param output file to write
+     * @throws IOException if a file cannot be read or the output written
+     */
+    public static void export(Collection<String> filenames, String output) throws IOException {
+        final List<String> inputs = List.copyOf(filenames);
+        boolean complete = false;
+        try {
+            try (AstExporter exporter = new AstExporter(output)) {
+                // Parse a bounded batch in parallel, then add it in order
+                final int batchSize = Runtime.getRuntime().availableProcessors() * 4;
+                for (int start = 0; start < inputs.size(); start += batchSize) {
+                    final List<String> batch = inputs.subList(start, Math.min(start + batchSize, inputs.size()));
+                    final AstTree[] trees = new AstTree[batch.size()];
+                    IntStream.range(0, trees.length).parallel()
+                        .forEach(i -> trees[i] = parseFile(batch.get(i)));
+                    for (int i = 0; i < trees.length; i++) {
+                        exporter.add(batch.get(i), trees[i]);
+                    }
+                }
+            }
+            complete = true;
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        finally {
+            if (!complete) {
+                Files.deleteIfExists(Path.of(output));
+            }
+        }
+    }
+
+    /**
+     * Appends the rows of a tree.
+     *
+     * @param filename name of the file the tree was parsed from
+     * @param tree flattened tree
+     * @throws IOException if a block cannot be written
+     * @throws IllegalStateException if the exporter is closed
+     */
+    public synchronized void add(String filename, AstTree tree) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Exporter is closed");
+        }
+        final int fileId = files.size();
+        files.add(filename);
+        try {
+            appendRows(tree, fileId);
+        }
+        catch (IOException ex) {
+            failed = true;
+            throw ex;
+        }
+    }
+
+    /**
+     * Writes the last blocks and the footer, then closes the file. After a
+     * failed {@link #add(String, AstTree)} the file is closed as is.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                if (!failed) {
+                    for (Column column : Column.values()) {
+                        if (buffers[column.ordinal()].size > 0) {
+                            flush(column);
+                        }
+                    }
+                    writeFooter();
+                }
+            }
+            finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+
+    private static AstTree parseFile(String filename) {
+        final AstTree result;
+        try (ParseSession session = ParseSession.open()) {
+            result = new AstTree(session.parse(CharStreams.fromFileName(filename)));
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return result;
+    }
+
+    private void appendRows(AstTree tree, int fileId) throws IOException {
+        for (int id = 0; id < tree.size(); id++) {
+            final ASTNode node = tree.getNode(id);
+            final int type = tree.getType(id);
+            append(Column.TYPE, type);
+            append(Column.PARENT, tree.getParentId(id));
+            append(Column.DEPTH, tree.getDepth(id));
+            append(Column.LINE, node.getLineNumber());
+            append(Column.COLUMN, node.getColumnNumber());
+            append(Column.FILE, fileId);
+            if (NodeTypes.isRule(type) || NodeTypes.getFixedText(type) != null) {
+                append(Column.TEXT, -1);
+            }
+            else {
+                append(Column.TEXT, getDictionaryId(node.getTextView()));
+            }
+        }
+    }
+
+    private void append(Column column, int value) throws IOException {
+        final ColumnBuffer buffer = buffers[column.ordinal()];
+        buffer.values[buffer.size++] = value;
+        if (buffer.size == blockSize) {
+            flush(column);
+        }
+    }
+
+    private void flush(Column column) throws IOException {
+        final ColumnBuffer buffer = buffers[column.ordinal()];
+        encoded.reset();
+        int previous = 0;
+        for (int i = 0; i < buffer.size; i++) {
+            writeVarint(encoded, buffer.values[i] - previous);
+            previous = buffer.values[i];
+        }
+        final byte[] raw = encoded.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            final int count = deflater.deflate(deflated);
+            out.write(deflated, 0, count);
+            length += count;
+        }
+
+        buffer.blocks.add(new long[] {position, length, raw.length, buffer.size});
+        position += length;
+        buffer.size = 0;
+    }
+
+    private void writeFooter() throws IOException {
+        final long footer = position;
+        out.writeInt(buffers.length);
+        for (ColumnBuffer buffer : buffers) {
+            out.writeInt(buffer.blocks.size());
+            for (long[] block : buffer.blocks) {
+                out.writeLong(block[0]);
+                out.writeInt((int) block[1]);
+                out.writeInt((int) block[2]);
+                out.writeInt((int) block[3]);
+            }
+        }
+        // Type names from EOF (-1) up, so files stay readable when the grammar changes
+        final List<String> typeNames = new ArrayList<>();
+        for (int type = -1; type < NodeTypes.TYPE_COUNT; type++) {
+            typeNames.add(NodeTypes.getName(type));
+        }
+        writeStrings(typeNames);
+        writeStrings(files);
+        writeStrings(dictionary);
+        out.writeLong(footer);
+        out.writeInt(MAGIC);
+    }
+
+    private void writeStrings(List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            // Not writeUTF, which is limited to 64K and string literals can be longer
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private int getDictionaryId(CharSequence text) {
+        Integer id = dictionaryIds.get(CharBuffer.wrap(text));
+        if (id == null) {
+            final String copy = text.toString();
+            id = dictionary.size();
+            dictionary.add(copy);
+            dictionaryIds.put(CharBuffer.wrap(copy), id);
+        }
+        return id;
+    }
+
+    // Zig-zag, so small negative deltas stay short
+    private static void writeVarint(ByteArrayOutputStream target, int value) {
+        int bits = (value << 1) ^ (value >> 31);
+        while ((bits & ~0x7F) != 0) {
+            target.write((bits & 0x7F) | 0x80);
+            bits >>>= 7;
+        }
+        target.write(bits);
+    }
+
+    /**
+     * Columns of an exported file, one value per node.
+     */
+    public enum Column {
+        /** Node type, see {@link NodeTypes}. */
+        TYPE,
+        /** Row of the parent within its file, -1 for the root. */
+        PARENT,
+        /** Depth of the node, 0 for the root. */
+        DEPTH,
+        /** Line number. */
+        LINE,
+        /** Column number. */
+        COLUMN,
+        /** Index of the file in {@link AstColumnReader#getFiles()}. */
+        FILE,
+        /** Dictionary id of the leaf text, -1 for inner nodes and fixed text tokens. */
+        TEXT
+    }
+
+    /**
+     * Values of the current block of a column and the directory of its written
+     * blocks: offset, compressed length, encoded length, value count.
+     */
+    private static final class ColumnBuffer {
+        private final int[] values;
+        private final List<long[]> blocks = new ArrayList<>();
+        private int size;
+
+        ColumnBuffer(int blockSize) {
+            values = new int[blockSize];
+        }
+    }
+}
@@ -1,21 +1,16 @@
 package parseva.tools;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
-
-import parseva.tools.grammar.JavaBaseListener;
-import parseva.tools.grammar.JavaLexer;
-import parseva.tools.grammar.JavaParser;
 
 /**
  * A small class that flattens an ANTLR4 {@code ParseTree}. Given the
@@ -145,26 +140,28 @@ public class AstPrinter {
         StringBuilder builder = new StringBuilder();
 
         AstPrinter ast = this;
-        List<AstPrinter> firstStack = new ArrayList<>();
+        Deque<AstPrinter> firstStack = new ArrayDeque<>();
         firstStack.add(ast);
 
-        List<List<AstPrinter>> childListStack = new ArrayList<>();
+        // Deques, since removing the head of an ArrayList is linear in the number
+        // of siblings and made printing wide nodes quadratic.
+        List<Deque<AstPrinter>> childListStack = new ArrayList<>();
         childListStack.add(firstStack);
 
         while (!childListStack.isEmpty()) {
 
-            List<AstPrinter> childStack = childListStack.get(childListStack.size() - 1);
+            Deque<AstPrinter> childStack = childListStack.get(childListStack.size() - 1);
 
             if (childStack.isEmpty()) {
                 childListStack.remove(childListStack.size() - 1);
             }
             else {
-                ast = childStack.remove(0);
+                ast = childStack.removeFirst();
                 String caption;
 
                 if (ast.payload instanceof Token token) {
                     caption = String.format("TOKEN[type: %s, text: %s]",
-                        token.getType(), NEWLINE.matcher(token.getText()).replaceAll(Matcher.quoteReplacement("\\n")));
+                        token.getType(), NEWLINE.matcher(NodeTypes.getTokenText(token)).replaceAll(Matcher.quoteReplacement("\\n")));
                 } else {
                     caption = String.valueOf(ast.payload);
                 }
@@ -194,7 +191,7 @@ public class AstPrinter {
                 if (ast.children.isEmpty()) {
                     continue;
                 }
-                List<AstPrinter> children = new ArrayList<>(ast.children);
+                Deque<AstPrinter> children = new ArrayDeque<>(ast.children);
                 childListStack.add(children);
             }
         }
@@ -203,33 +200,9 @@ public class AstPrinter {
     }
 
     public static String createAstString(String filename) {
-        try {
-            // Open the input file stream
-            CharStream codePointCharStream = CharStreams.fromFileName(filename);
-
-            // Create a lexer that feeds off of input CharStream
-            JavaLexer lexer = new JavaLexer(codePointCharStream);
-
-            // Create a buffer of tokens pulled from the lexer
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-
-            // Create a parser that feeds off the tokens buffer
-            JavaParser parser = new JavaParser(tokens);
-
-            // Begin parsing at rule prog
-            ParseTree tree = parser.compilationUnit();
-
-            // Create a generic parse tree walker that can trigger callbacks
-            ParseTreeWalker walker = new ParseTreeWalker();
-
-            // Walk the tree created during the parse, trigger callbacks
-            // Need to implement this listener
-            walker.walk(new JavaBaseListener(), tree);
-
-            AstPrinter ast = new AstPrinter(tree);
-
-            //System.out.println(ast);
-            return ast.toString();
+        // Reuse this thread's lexer and parser rather than building new ones per file
+        try (ParseSession session = ParseSession.open()) {
+            return session.createAstString(CharStreams.fromFileName(filename));
         } catch (IOException e) {
             // TODO Auto-generated catch block
             e.printStackTrace();
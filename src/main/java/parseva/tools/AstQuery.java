@@ -0,0 +1,311 @@
+package parseva.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import parseva.tools.api.ASTNode;
+
+/**
+ * A compiled path query over an {@link AstTree}. A query is a sequence of
+ * steps, each one a separator followed by an optional axis and a node test:
+ *
+ * <pre>
+ * {@code
+ * //lambdaExpression//methodInvocation
+ * //constructorDeclaration//catchClause
+ * /ordinaryCompilation/singleTypeImportDeclaration
+ * //methodInvocation/ancestor::lambdaExpression
+ * }
+ * </pre>
+ *
+ * {@code /} selects children of the previous step, {@code //} selects
+ * descendants. The axes {@code child::}, {@code descendant::} and
+ * {@code ancestor::} may be spelled out after a single {@code /}. A node test
+ * is a name understood by {@link NodeTypes#getType(String)}, several such names
+ * separated by {@code |} (handy for the left-factored rule variants of the
+ * grammar, e.g. {@code methodInvocation|methodInvocation_lfno_primary}), or
+ * {@code *}. Quoted literals may contain the separators, as in
+ * {@code //'/'} or {@code //'||'|'|'}.
+ *
+ * <p>Names refer to the flattened tree: a node is named after the innermost
+ * rule of its single-child chain, so a method is a {@code methodDeclaration},
+ * not a {@code classBodyDeclaration}. Rules that always have exactly one
+ * child, such as {@code importDeclaration}, {@code classBodyDeclaration} or
+ * {@code statement}, never occur and are rejected, see
+ * {@link NodeTypes#isKeptWhenFlattened(int)}. {@link AstTree#toString()}
+ * prints a tree with these names.</p>
+ *
+ * <p>Each step only visits the posting list of its node type and relates it to
+ * the previous step through the pre-order intervals of the tree, so selective
+ * queries never traverse the whole tree.</p>
+ */
+public final class AstQuery {
+
+    private static final int ANY_TYPE = Integer.MIN_VALUE;
+
+    private final String expression;
+    private final Step[] steps;
+
+    private AstQuery(String expression, Step... steps) {
+        this.expression = expression;
+        this.steps = steps;
+    }
+
+    /**
+     * Compiles the given query expression.
+     *
+     * @param expression query expression
+     * @return compiled query
+     * @throws IllegalArgumentException if the expression is malformed or
+     *     references an unknown node type or one that never occurs in a
+     *     flattened tree
+     */
+    public static AstQuery compile(String expression) {
+        final List<Step> steps = new ArrayList<>();
+        int position = 0;
+        while (position < expression.length()) {
+            if (expression.charAt(position) != '/') {
+                throw new IllegalArgumentException("Expected '/' at " + position + " in " + expression);
+            }
+            Axis axis = Axis.CHILD;
+            position++;
+            if (position < expression.length() && expression.charAt(position) == '/') {
+                axis = Axis.DESCENDANT;
+                position++;
+            }
+            int end = indexOfUnquoted(expression, "/", position);
+            if (end < 0) {
+                end = expression.length();
+            }
+            String test = expression.substring(position, end).trim();
+            final int axisEnd = indexOfUnquoted(test, "::", 0);
+            if (axisEnd >= 0) {
+                if (axis == Axis.DESCENDANT) {
+                    throw new IllegalArgumentException("Explicit axis after '//' in " + expression);
+                }
+                axis = Axis.fromName(test.substring(0, axisEnd), expression);
+                test = test.substring(axisEnd + 2);
+            }
+            if (test.isEmpty()) {
+                throw new IllegalArgumentException("Missing node test at " + position + " in " + expression);
+            }
+            final int[] types;
+            if ("*".equals(test)) {
+                types = new int[] {ANY_TYPE};
+            }
+            else {
+                final List<String> names = new ArrayList<>();
+                int start = 0;
+                for (int bar = indexOfUnquoted(test, "|", 0); bar >= 0; bar = indexOfUnquoted(test, "|", start)) {
+                    names.add(test.substring(start, bar).trim());
+                    start = bar + 1;
+                }
+                names.add(test.substring(start).trim());
+                types = new int[names.size()];
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = NodeTypes.getType(names.get(i));
+                    if (!NodeTypes.isKeptWhenFlattened(types[i])) {
+                        throw new IllegalArgumentException("Node type " + names.get(i)
+                            + " is always collapsed into its only child in " + expression);
+                    }
+                }
+            }
+            steps.add(new Step(axis, types));
+            position = end;
+        }
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Empty query");
+        }
+        return new AstQuery(expression, steps.toArray(new Step[0]));
+    }
+
+    /**
+     * Evaluates this query against the given tree.
+     *
+     * @param tree tree to query
+     * @return matching nodes, in document order
+     */
+    public List<ASTNode> select(AstTree tree) {
+        final int[] ids = selectIds(tree);
+        final List<ASTNode> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(tree.getNode(id));
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates this query against the given tree.
+     *
+     * @param tree tree to query
+     * @return ids of matching nodes, in ascending order
+     */
+    public int[] selectIds(AstTree tree) {
+        // null stands for the virtual document node above the root
+        int[] context = null;
+        for (Step step : steps) {
+            final int[] candidates = candidates(tree, step.types);
+            if (context == null) {
+                context = selectFromDocument(step.axis, candidates);
+            }
+            else {
+                switch (step.axis) {
+                    case CHILD -> context = selectChildren(tree, context, candidates);
+                    case DESCENDANT -> context = selectDescendants(tree, context, candidates);
+                    default -> context = selectAncestors(tree, context, candidates);
+                }
+            }
+            if (context.length == 0) {
+                break;
+            }
+        }
+        return context;
+    }
+
+    // Quoted token literals such as '/', '|' or '::' may contain the separators
+    private static int indexOfUnquoted(String text, String target, int from) {
+        int result = -1;
+        boolean quoted = false;
+        for (int i = from; i < text.length() && result < 0; i++) {
+            if (text.charAt(i) == '\'') {
+                quoted = !quoted;
+            }
+            else if (!quoted && text.startsWith(target, i)) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    private static int[] candidates(AstTree tree, int... types) {
+        int[] result;
+        if (types[0] == ANY_TYPE) {
+            result = new int[tree.size()];
+            Arrays.setAll(result, id -> id);
+        }
+        else {
+            result = tree.getPostings(types[0]);
+            for (int i = 1; i < types.length; i++) {
+                result = union(result, tree.getPostings(types[i]));
+            }
+        }
+        return result;
+    }
+
+    private static int[] union(int[] first, int[] second) {
+        final int[] result = new int[first.length + second.length];
+        int count = 0;
+        int left = 0;
+        int right = 0;
+        while (left < first.length || right < second.length) {
+            if (right == second.length
+                    || left < first.length && first[left] < second[right]) {
+                result[count++] = first[left++];
+            }
+            else if (left == first.length || second[right] < first[left]) {
+                result[count++] = second[right++];
+            }
+            else {
+                result[count++] = first[left++];
+                right++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] selectFromDocument(Axis axis, int[] candidates) {
+        final int[] result;
+        switch (axis) {
+            case CHILD -> {
+                if (candidates.length > 0 && candidates[0] == 0) {
+                    result = new int[] {0};
+                }
+                else {
+                    result = new int[0];
+                }
+            }
+            case DESCENDANT -> result = candidates;
+            default -> result = new int[0];
+        }
+        return result;
+    }
+
+    private static int[] selectChildren(AstTree tree, int[] context, int[] candidates) {
+        final int[] result = new int[candidates.length];
+        int count = 0;
+        for (int candidate : candidates) {
+            if (Arrays.binarySearch(context, tree.getParentId(candidate)) >= 0) {
+                result[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Subtrees are either nested or disjoint, so a candidate lies inside some
+    // context subtree exactly when the furthest subtree end among context nodes
+    // preceding it reaches it.
+    private static int[] selectDescendants(AstTree tree, int[] context, int[] candidates) {
+        final int[] result = new int[candidates.length];
+        int count = 0;
+        int next = 0;
+        int reach = -1;
+        for (int candidate : candidates) {
+            while (next < context.length && context[next] < candidate) {
+                reach = Math.max(reach, tree.getSubtreeEnd(context[next]));
+                next++;
+            }
+            if (reach >= candidate) {
+                result[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] selectAncestors(AstTree tree, int[] context, int[] candidates) {
+        final int[] result = new int[candidates.length];
+        int count = 0;
+        for (int candidate : candidates) {
+            int firstAfter = Arrays.binarySearch(context, candidate + 1);
+            if (firstAfter < 0) {
+                firstAfter = -firstAfter - 1;
+            }
+            if (firstAfter < context.length
+                    && context[firstAfter] <= tree.getSubtreeEnd(candidate)) {
+                result[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private enum Axis {
+        CHILD,
+        DESCENDANT,
+        ANCESTOR;
+
+        static Axis fromName(String name, String expression) {
+            return switch (name.trim()) {
+                case "child" -> CHILD;
+                case "descendant" -> DESCENDANT;
+                case "ancestor" -> ANCESTOR;
+                default -> throw new IllegalArgumentException(
+                    "Unknown axis '" + name + "' in " + expression);
+            };
+        }
+    }
+
+    private static final class Step {
+        private final Axis axis;
+        private final int[] types;
+
+        Step(Axis axis, int... types) {
+            this.axis = axis;
+            this.types = types;
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package parseva.tools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import parseva.tools.api.ASTNode;
+import parseva.tools.grammar.JavaLexer;
+import parseva.tools.grammar.JavaParser;
+
+/**
+ * The flattened {@link ASTNode} tree of a single file. Every chain of nodes
+ * with a single child is replaced by its last node: the innermost rule, the
+ * one that actually has several children (a method is a
+ * {@code methodDeclaration}, not a {@code classBodyDeclaration}), or the
+ * token the chain ends in (a name is an {@code Identifier} leaf, with no
+ * {@code identifier} rule above it). The root is {@code ordinaryCompilation},
+ * or a bare {@code EOF} leaf for an empty file.
+ *
+ * <p>This is not the shape {@link AstPrinter} prints: it names a collapsed
+ * chain after its outermost rule, keeps the rule above a leaf and starts at
+ * {@code compilationUnit}, so names from its dumps such as
+ * {@code identifier}, {@code typeDeclaration} or
+ * {@code classBodyDeclaration} do not occur here. {@link #toString()} prints
+ * this tree with the names {@link AstQuery} accepts.</p>
+ *
+ * <p>Nodes are numbered in pre-order, so the subtree of node {@code n} is the
+ * id range {@code [n, getSubtreeEnd(n)]}. Structure is also kept in primitive
+ * columns, together with a posting list of node ids per type, which lets
+ * {@link AstQuery} visit only candidate nodes.</p>
+ *
+ * <p>Every node also gets a structural hash over its type, its token text and
+ * the hashes of its children, see {@link #getHash(int)}.</p>
+ *
+ * <p>When built with its token stream, the tree keeps the position of every
+ * hidden-channel token (comments) in an index by token number, and builds
+ * comment nodes only when {@link ASTNode#getLeadingComments()} or
+ * {@link ASTNode#getTrailingComments()} is called.</p>
+ */
+public final class AstTree {
+
+    private static final int[] NO_IDS = new int[0];
+    private static final ASTNode[] NO_NODES = new ASTNode[0];
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_MULTIPLIER = 0x9e3779b97f4a7c15L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ASTNodeImpl[] nodes;
+    private final int[] types;
+    private final int[] parents;
+    private final int[] subtreeEnds;
+    private final int[] depths;
+    private final int[][] postings;
+    private final long[] hashes;
+    private final String source;
+    private final CommentIndex comments;
+
+    /**
+     * Flattens the given parse tree. Identifier text is left in the source,
+     * comments are not available.
+     *
+     * @param tree parse tree to flatten
+     */
+    public AstTree(ParseTree tree) {
+        this(tree, null, null);
+    }
+
+    /**
+     * Flattens the given parse tree, taking identifier text from the given
+     * table. Comments are not available.
+     *
+     * @param tree parse tree to flatten
+     * @param identifiers table to intern identifiers in, or null to leave
+     *     them in the source
+     */
+    public AstTree(ParseTree tree, IdentifierTable identifiers) {
+        this(tree, null, identifiers);
+    }
+
+    /**
+     * Flattens the given parse tree, keeping the comments of the token stream
+     * it was parsed from.
+     *
+     * @param tree parse tree to flatten
+     * @param tokens token stream the tree was parsed from, or null to drop
+     *     comments
+     * @param identifiers table to intern identifiers in, or null to leave
+     *     them in the source
+     */
+    public AstTree(ParseTree tree, BufferedTokenStream tokens, IdentifierTable identifiers) {
+        final Builder builder = new Builder(this, findInput(tree), identifiers);
+        builder.build(tree, null, 0, 0);
+
+        source = builder.source;
+        comments = tokens == null ? CommentIndex.EMPTY : builder.indexComments(tokens);
+        nodes = builder.nodeList.toArray(new ASTNodeImpl[0]);
+        parents = builder.parentList.toArray();
+        subtreeEnds = builder.endList.toArray();
+        depths = builder.depthList.toArray();
+        types = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            types[i] = nodes[i].getType();
+        }
+        postings = createPostings(types);
+        hashes = createHashes(nodes);
+    }
+
+    /**
+     * Parses the given input and flattens the resulting tree.
+     *
+     * @param input source code
+     * @return flattened tree
+     */
+    public static AstTree parse(CharStream input) {
+        final JavaLexer lexer = new JavaLexer(input);
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        final JavaParser parser = new JavaParser(tokens);
+        return new AstTree(parser.compilationUnit(), tokens, null);
+    }
+
+    /**
+     * Parses the given input with lexers and parsers managed by the given
+     * cache, and flattens the resulting tree.
+     *
+     * @param input source code
+     * @param cache DFA cache to use
+     * @return flattened tree
+     */
+    public static AstTree parse(CharStream input, DfaCache cache) {
+        final CommonTokenStream tokens = new CommonTokenStream(cache.newLexer(input));
+        final JavaParser parser = cache.newParser(tokens);
+        return new AstTree(parser.compilationUnit(), tokens, null);
+    }
+
+    /**
+     * Parses the given file and flattens the resulting tree.
+     *
+     * @param filename name of the file to parse
+     * @return flattened tree
+     * @throws IOException if the file cannot be read
+     */
+    public static AstTree parseFile(String filename) throws IOException {
+        return parse(CharStreams.fromFileName(filename));
+    }
+
+    /**
+     * Full text of the parsed source, which the text of leaf nodes points into.
+     *
+     * @return source text, or null if the parse tree had no character input
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Root of the tree.
+     *
+     * @return root node
+     */
+    public ASTNodeImpl getRoot() {
+        return nodes[0];
+    }
+
+    /**
+     * Number of nodes in the tree.
+     *
+     * @return node count
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Node with the given pre-order id.
+     *
+     * @param id node id
+     * @return the node
+     */
+    public ASTNodeImpl getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Type of the node with the given id.
+     *
+     * @param id node id
+     * @return node type
+     */
+    public int getType(int id) {
+        return types[id];
+    }
+
+    /**
+     * Id of the parent of the given node.
+     *
+     * @param id node id
+     * @return parent id, or -1 for the root
+     */
+    public int getParentId(int id) {
+        return parents[id];
+    }
+
+    /**
+     * Id of the last node in the subtree of the given node.
+     *
+     * @param id node id
+     * @return last descendant id, or {@code id} itself for a leaf
+     */
+    public int getSubtreeEnd(int id) {
+        return subtreeEnds[id];
+    }
+
+    /**
+     * Depth of the given node, the root having depth 0.
+     *
+     * @param id node id
+     * @return node depth
+     */
+    public int getDepth(int id) {
+        return depths[id];
+    }
+
+    /**
+     * Structural hash of the subtree rooted at the given node. It covers node
+     * types, token text and the order of children, but not positions, so an
+     * unchanged method that merely moved to other lines keeps its hash.
+     *
+     * @param id node id
+     * @return 64 bit subtree hash
+     */
+    public long getHash(int id) {
+        return hashes[id];
+    }
+
+    /**
+     * Comments directly before the given node, see
+     * {@link ASTNode#getLeadingComments()}.
+     *
+     * @param id node id
+     * @return leading comments, in source order
+     */
+    public ASTNode[] getLeadingComments(int id) {
+        ASTNode[] result = NO_NODES;
+        int firstLeaf = id;
+        while (nodes[firstLeaf].children().length > 0) {
+            firstLeaf++;
+        }
+        final int tokenIndex = nodes[firstLeaf].getTokenIndex();
+        if (tokenIndex >= 0) {
+            final int end = comments.find(tokenIndex);
+            int start = end;
+            while (start > 0 && comments.tokens[start - 1] == tokenIndex - (end - start) - 1) {
+                start--;
+            }
+            // Skip comments that trail the previous token on its line
+            int previousLeaf = firstLeaf - 1;
+            while (previousLeaf >= 0 && nodes[previousLeaf].children().length > 0) {
+                previousLeaf--;
+            }
+            if (previousLeaf >= 0) {
+                final int previousLine = nodes[previousLeaf].getLineNumber();
+                while (start < end && comments.lines[start] == previousLine) {
+                    start++;
+                }
+            }
+            result = comments.createNodes(source, start, end);
+        }
+        return result;
+    }
+
+    /**
+     * Comments directly after the given node, see
+     * {@link ASTNode#getTrailingComments()}.
+     *
+     * @param id node id
+     * @return trailing comments, in source order
+     */
+    public ASTNode[] getTrailingComments(int id) {
+        ASTNode[] result = NO_NODES;
+        final ASTNodeImpl lastLeaf = nodes[subtreeEnds[id]];
+        final int tokenIndex = lastLeaf.getTokenIndex();
+        if (tokenIndex >= 0) {
+            final int start = comments.find(tokenIndex + 1);
+            int end = start;
+            while (end < comments.tokens.length
+                    && comments.tokens[end] == tokenIndex + 1 + end - start
+                    && comments.lines[end] == lastLeaf.getLineNumber()) {
+                end++;
+            }
+            result = comments.createNodes(source, start, end);
+        }
+        return result;
+    }
+
+    /**
+     * Ids of all nodes of the given type, in ascending order. The returned
+     * array is shared and must not be modified.
+     *
+     * @param type node type
+     * @return posting list of the type
+     */
+    int[] getPostings(int type) {
+        final int slot = postingSlot(type);
+        final int[] result;
+        if (slot < 0 || slot >= postings.length) {
+            result = NO_IDS;
+        }
+        else {
+            result = postings[slot];
+        }
+        return result;
+    }
+
+    /**
+     * All nodes of the given type, in document order.
+     *
+     * @param type node type
+     * @return matching nodes
+     */
+    public List<ASTNode> getNodesOfType(int type) {
+        final int[] ids = getPostings(type);
+        final List<ASTNode> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(nodes[id]);
+        }
+        return result;
+    }
+
+    /**
+     * Prints the tree, one node per line indented by depth: the type name,
+     * followed by the text for leaves of types without a fixed text.
+     *
+     * @return printed tree
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int id = 0; id < nodes.length; id++) {
+            builder.append("  ".repeat(depths[id])).append(NodeTypes.getName(types[id]));
+            if (!NodeTypes.isRule(types[id]) && NodeTypes.getFixedText(types[id]) == null) {
+                builder.append(' ');
+                final CharSequence text = nodes[id].getTextView();
+                for (int i = 0; i < text.length(); i++) {
+                    final char c = text.charAt(i);
+                    if (c == '\n') {
+                        builder.append("\\n");
+                    }
+                    else if (c == '\r') {
+                        builder.append("\\r");
+                    }
+                    else {
+                        builder.append(c);
+                    }
+                }
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static int[][] createPostings(int[] types) {
+        final int[] counts = new int[NodeTypes.TYPE_COUNT];
+        for (int type : types) {
+            counts[postingSlot(type)]++;
+        }
+        final int[][] result = new int[counts.length][];
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = counts[i] == 0 ? NO_IDS : new int[counts[i]];
+        }
+        Arrays.fill(counts, 0);
+        for (int id = 0; id < types.length; id++) {
+            final int slot = postingSlot(types[id]);
+            result[slot][counts[slot]++] = id;
+        }
+        return result;
+    }
+
+    // Children always have larger ids than their parent, so walking the ids
+    // backwards is a bottom-up pass.
+    private static long[] createHashes(ASTNodeImpl... nodes) {
+        final long[] result = new long[nodes.length];
+        for (int id = nodes.length - 1; id >= 0; id--) {
+            final ASTNodeImpl node = nodes[id];
+            long hash = HASH_SEED + node.getType();
+            final ASTNode[] children = node.children();
+            if (children.length == 0) {
+                hash = hash * HASH_MULTIPLIER + hashText(node.getTextView());
+            }
+            for (ASTNode child : children) {
+                hash = hash * HASH_MULTIPLIER + result[((ASTNodeImpl) child).getId()];
+            }
+            result[id] = mix(hash + children.length);
+        }
+        return result;
+    }
+
+    private static long hashText(CharSequence text) {
+        long hash = HASH_SEED;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // Finalizer of SplitMix64, spreads every input bit over the whole result.
+    private static long mix(long value) {
+        long result = (value ^ value >>> 30) * 0xbf58476d1ce4e5b9L;
+        result = (result ^ result >>> 27) * 0x94d049bb133111ebL;
+        return result ^ result >>> 31;
+    }
+
+    // Token type 0 is never produced by the lexer, so EOF can borrow its slot.
+    private static int postingSlot(int type) {
+        return type == Token.EOF ? 0 : type;
+    }
+
+    private static CharStream findInput(ParseTree tree) {
+        ParseTree current = tree;
+        while (current.getChildCount() > 0) {
+            current = current.getChild(0);
+        }
+        CharStream input = null;
+        if (current instanceof TerminalNode terminal) {
+            input = terminal.getSymbol().getInputStream();
+        }
+        return input;
+    }
+
+    /**
+     * Positions of the hidden-channel tokens of a file, sorted by token index.
+     */
+    private static final class CommentIndex {
+        private static final CommentIndex EMPTY = new CommentIndex(0);
+
+        private final int[] tokens;
+        private final int[] types;
+        private final int[] lines;
+        private final int[] columns;
+        private final int[] starts;
+        private final int[] ends;
+
+        CommentIndex(int size) {
+            tokens = new int[size];
+            types = new int[size];
+            lines = new int[size];
+            columns = new int[size];
+            starts = new int[size];
+            ends = new int[size];
+        }
+
+        // Position of the first comment with a token index not below the given one
+        int find(int tokenIndex) {
+            final int position = Arrays.binarySearch(tokens, tokenIndex);
+            return position < 0 ? -position - 1 : position;
+        }
+
+        ASTNode[] createNodes(String source, int start, int end) {
+            final ASTNode[] result = new ASTNode[end - start];
+            for (int i = start; i < end; i++) {
+                result[i - start] = new ASTNodeImpl(-1, types[i], source, starts[i], ends[i],
+                    lines[i], columns[i], null, -1);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Collects the nodes and columns of a tree during a single pre-order walk.
+     */
+    private static final class Builder {
+        private final List<ASTNodeImpl> nodeList = new ArrayList<>();
+        private final IntList parentList = new IntList();
+        private final IntList endList = new IntList();
+        private final IntList depthList = new IntList();
+        private final AstTree owner;
+        private final IdentifierTable identifiers;
+        private final String source;
+        /** Char offset of every code point, or null if they coincide. */
+        private final int[] charOffsets;
+
+        Builder(AstTree owner, CharStream input, IdentifierTable identifiers) {
+            this.owner = owner;
+            this.identifiers = identifiers;
+            if (input == null || input.size() == 0) {
+                source = null;
+                charOffsets = null;
+            }
+            else {
+                source = input.getText(Interval.of(0, input.size() - 1));
+                charOffsets = createCharOffsets(source, input.size());
+            }
+        }
+
+        int build(ParseTree tree, ASTNodeImpl parent, int index, int depth) {
+            ParseTree current = tree;
+            while (current.getChildCount() == 1) {
+                current = current.getChild(0);
+            }
+
+            final int id = nodeList.size();
+            final ASTNodeImpl node = createNode(current, id, parent, index);
+            node.setTree(owner);
+            nodeList.add(node);
+            parentList.add(parent == null ? -1 : parent.getId());
+            endList.add(id);
+            depthList.add(depth);
+
+            final int childCount = current.getChildCount();
+            int end = id;
+            if (childCount > 0) {
+                final ASTNode[] children = new ASTNode[childCount];
+                for (int i = 0; i < childCount; i++) {
+                    final int childId = nodeList.size();
+                    end = build(current.getChild(i), node, i, depth + 1);
+                    children[i] = nodeList.get(childId);
+                }
+                node.setChildren(children);
+                endList.set(id, end);
+            }
+            return end;
+        }
+
+        private ASTNodeImpl createNode(ParseTree tree, int id, ASTNodeImpl parent, int index) {
+            final ASTNodeImpl node;
+            if (tree instanceof TerminalNode terminal) {
+                node = createLeaf(terminal.getSymbol(), id, parent, index);
+                node.setTokenIndex(terminal.getSymbol().getTokenIndex());
+            }
+            else {
+                final ParserRuleContext context = (ParserRuleContext) tree;
+                final Token start = context.getStart();
+                final int ruleIndex = context.getRuleIndex();
+                node = new ASTNodeImpl(id, NodeTypes.ruleType(ruleIndex), JavaParser.ruleNames[ruleIndex],
+                    start == null ? 0 : start.getLine(),
+                    start == null ? 0 : start.getCharPositionInLine(), parent, index);
+            }
+            return node;
+        }
+
+        private ASTNodeImpl createLeaf(Token token, int id, ASTNodeImpl parent, int index) {
+            final int type = token.getType();
+            final int line = token.getLine();
+            final int column = token.getCharPositionInLine();
+            final String text;
+            if (source == null || token.getStartIndex() < 0 || token.getStopIndex() >= codePointCount()) {
+                text = NodeTypes.getTokenText(token);
+            }
+            else {
+                text = NodeTypes.getFixedText(type);
+            }
+
+            final ASTNodeImpl node;
+            if (text == null) {
+                final int start = charOffset(token.getStartIndex());
+                final int end = charOffset(token.getStopIndex() + 1);
+                if (identifiers != null && type == JavaLexer.Identifier) {
+                    node = new ASTNodeImpl(id, type, identifiers.intern(source, start, end),
+                        line, column, parent, index);
+                }
+                else {
+                    node = new ASTNodeImpl(id, type, source, start, end, line, column, parent, index);
+                }
+            }
+            else {
+                node = new ASTNodeImpl(id, type, text, line, column, parent, index);
+            }
+            return node;
+        }
+
+        CommentIndex indexComments(BufferedTokenStream tokens) {
+            final List<Token> hidden = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                final Token token = tokens.get(i);
+                if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                    hidden.add(token);
+                }
+            }
+            final CommentIndex index = new CommentIndex(hidden.size());
+            for (int i = 0; i < hidden.size(); i++) {
+                final Token token = hidden.get(i);
+                index.tokens[i] = token.getTokenIndex();
+                index.types[i] = token.getType();
+                index.lines[i] = token.getLine();
+                index.columns[i] = token.getCharPositionInLine();
+                index.starts[i] = charOffset(token.getStartIndex());
+                index.ends[i] = charOffset(token.getStopIndex() + 1);
+            }
+            return index;
+        }
+
+        private int codePointCount() {
+            return charOffsets == null ? source.length() : charOffsets.length - 1;
+        }
+
+        private int charOffset(int codePointIndex) {
+            return charOffsets == null ? codePointIndex : charOffsets[codePointIndex];
+        }
+
+        // CharStream indices count code points, String indices count chars; they
+        // only differ when the source has supplementary characters.
+        private static int[] createCharOffsets(String text, int codePoints) {
+            int[] offsets = null;
+            if (text.length() != codePoints) {
+                offsets = new int[codePoints + 1];
+                int offset = 0;
+                for (int i = 0; i < codePoints; i++) {
+                    offsets[i] = offset;
+                    offset += Character.charCount(text.codePointAt(offset));
+                }
+                offsets[codePoints] = offset;
+            }
+            return offsets;
+        }
+    }
+
+    /**
+     * Minimal growable int array, to avoid boxing while the tree is built.
+     */
+    static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void set(int position, int value) {
+            values[position] = value;
+        }
+
+        int get(int position) {
+            return values[position];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package parseva.tools;
+
+/**
+ * A package, import, type, method or field declaration found by
+ * {@link DeclarationIndex}. Holds names and positions only, no tree nodes.
+ */
+public final class Declaration {
+
+    private static final String[] NO_NAMES = new String[0];
+
+    private final Kind kind;
+    private final String file;
+    private final String name;
+    private final String owner;
+    private final int lineNumber;
+    private final int columnNumber;
+    private final String[] supertypes;
+
+    Declaration(Kind kind, String file, String name, String owner,
+                int lineNumber, int columnNumber, String[] supertypes) {
+        this.kind = kind;
+        this.file = file;
+        this.name = name;
+        this.owner = owner;
+        this.lineNumber = lineNumber;
+        this.columnNumber = columnNumber;
+        this.supertypes = supertypes == null ? NO_NAMES : supertypes;
+    }
+
+    /**
+     * What is declared.
+     *
+     * @return declaration kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Name of the file the declaration is in.
+     *
+     * @return file name
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Simple name of a type, method or field. For packages and imports the
+     * dotted name as written, such as {@code java.util.*}.
+     *
+     * @return declared name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Qualified name of the enclosing type, or the package name for top level
+     * types.
+     *
+     * @return owner name, or null for packages, imports and top level types
+     *     in the default package
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Owner and name joined by a dot, such as {@code java.util.Map.Entry}.
+     *
+     * @return qualified name
+     */
+    public String getQualifiedName() {
+        return owner == null ? name : owner + '.' + name;
+    }
+
+    /**
+     * Line of the declared name.
+     *
+     * @return line number
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Column of the declared name.
+     *
+     * @return column number
+     */
+    public int getColumnNumber() {
+        return columnNumber;
+    }
+
+    /**
+     * Names of the types a type extends or implements, as written in the
+     * source and without type arguments.
+     *
+     * @return supertype names, empty for other kinds
+     */
+    public String[] getSupertypes() {
+        return supertypes.clone();
+    }
+
+    String[] supertypes() {
+        return supertypes;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + getQualifiedName() + " [" + file + ":" + lineNumber + "]";
+    }
+
+    /**
+     * Kinds of declarations.
+     */
+    public enum Kind {
+        /** A {@code package} declaration. */
+        PACKAGE,
+        /** A single type or on demand {@code import}. */
+        IMPORT,
+        /** An {@code import static}. */
+        STATIC_IMPORT,
+        /** A class, interface or enum. */
+        TYPE,
+        /** A method of a class. */
+        METHOD,
+        /** A field of a class, one per declared variable. */
+        FIELD
+    }
+}
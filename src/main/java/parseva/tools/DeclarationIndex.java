@@ -0,0 +1,658 @@
+package parseva.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.antlr.v4.runtime.CharStreams;
+
+import parseva.tools.Declaration.Kind;
+import parseva.tools.api.ASTNode;
+import parseva.tools.grammar.JavaLexer;
+import parseva.tools.grammar.JavaParser;
+
+/**
+ * Project wide index of the package, import, type, method and field
+ * declarations of many files. Declarations are extracted from the
+ * {@link AstTree} of each file, after which the tree is no longer needed:
+ * lookups such as {@link #resolve(String, String)} or
+ * {@link #getSubtypes(String)} only use the index. Names are interned, so a
+ * name shared by many files is stored once.
+ *
+ * <p>The index is thread safe. {@link #build(Collection)} parses and indexes
+ * files in parallel, each worker thread with its own {@link ParseSession};
+ * callers with their own thread pool can {@link #add(String, AstTree)} trees
+ * concurrently instead. A single file must not be added from two threads at
+ * once.</p>
+ *
+ * <p>Types are classes, interfaces, enums and annotation types. Methods and
+ * fields are those of classes and enums; members of interfaces and
+ * annotation types are not indexed. Local and anonymous
+ * classes, including enum constant bodies, are skipped together with
+ * everything declared in them.</p>
+ */
+public final class DeclarationIndex {
+
+    private static final int MAGIC = 0x50444958;
+    private static final int VERSION = 1;
+
+    private static final int PACKAGE_DECLARATION = NodeTypes.ruleType(JavaParser.RULE_packageDeclaration);
+    private static final int SINGLE_TYPE_IMPORT =
+        NodeTypes.ruleType(JavaParser.RULE_singleTypeImportDeclaration);
+    private static final int TYPE_IMPORT_ON_DEMAND =
+        NodeTypes.ruleType(JavaParser.RULE_typeImportOnDemandDeclaration);
+    private static final int SINGLE_STATIC_IMPORT =
+        NodeTypes.ruleType(JavaParser.RULE_singleStaticImportDeclaration);
+    private static final int STATIC_IMPORT_ON_DEMAND =
+        NodeTypes.ruleType(JavaParser.RULE_staticImportOnDemandDeclaration);
+    private static final int CLASS_DECLARATION = NodeTypes.ruleType(JavaParser.RULE_normalClassDeclaration);
+    private static final int INTERFACE_DECLARATION =
+        NodeTypes.ruleType(JavaParser.RULE_normalInterfaceDeclaration);
+    private static final int ENUM_DECLARATION = NodeTypes.ruleType(JavaParser.RULE_enumDeclaration);
+    private static final int ANNOTATION_TYPE_DECLARATION =
+        NodeTypes.ruleType(JavaParser.RULE_annotationTypeDeclaration);
+    private static final int METHOD_DECLARATION = NodeTypes.ruleType(JavaParser.RULE_methodDeclaration);
+    private static final int METHOD_DECLARATOR = NodeTypes.ruleType(JavaParser.RULE_methodDeclarator);
+    private static final int FIELD_DECLARATION = NodeTypes.ruleType(JavaParser.RULE_fieldDeclaration);
+    private static final int VARIABLE_DECLARATOR_LIST =
+        NodeTypes.ruleType(JavaParser.RULE_variableDeclaratorList);
+    private static final int SUPERCLASS = NodeTypes.ruleType(JavaParser.RULE_superclass);
+    private static final int SUPERINTERFACES = NodeTypes.ruleType(JavaParser.RULE_superinterfaces);
+    private static final int EXTENDS_INTERFACES = NodeTypes.ruleType(JavaParser.RULE_extendsInterfaces);
+
+    // Subtrees that are not part of a name: annotations and type arguments
+    private static final int[] SKIPPED_TYPES = {
+        NodeTypes.ruleType(JavaParser.RULE_normalAnnotation),
+        NodeTypes.ruleType(JavaParser.RULE_markerAnnotation),
+        NodeTypes.ruleType(JavaParser.RULE_singleElementAnnotation),
+        NodeTypes.ruleType(JavaParser.RULE_typeArguments),
+    };
+
+    // Code bodies, whose classes are local or anonymous and have no members to index
+    private static final int[] LOCAL_SCOPES = {
+        NodeTypes.ruleType(JavaParser.RULE_constructorBody),
+        NodeTypes.ruleType(JavaParser.RULE_block),
+        NodeTypes.ruleType(JavaParser.RULE_classInstanceCreationExpression),
+        NodeTypes.ruleType(JavaParser.RULE_classInstanceCreationExpression_lf_primary),
+        NodeTypes.ruleType(JavaParser.RULE_classInstanceCreationExpression_lfno_primary),
+        NodeTypes.ruleType(JavaParser.RULE_enumConstant),
+    };
+
+    // Keywords and separators around names
+    private static final int[] SKIPPED_TOKENS = {
+        JavaLexer.PACKAGE, JavaLexer.IMPORT, JavaLexer.STATIC, JavaLexer.EXTENDS,
+        JavaLexer.IMPLEMENTS, JavaLexer.SEMI,
+    };
+
+    private final IdentifierTable names = new IdentifierTable();
+    private final Map<String, List<Declaration>> byFile = new ConcurrentHashMap<>();
+    private final Map<String, Set<Declaration>> typesByQualifiedName = new ConcurrentHashMap<>();
+    private final Map<String, Set<Declaration>> membersByName = new ConcurrentHashMap<>();
+    private final Map<String, Set<Declaration>> subtypesByName = new ConcurrentHashMap<>();
+
+    /**
+     * Parses and indexes the given files in parallel.
+     *
+     * @param filenames files to index
+     * @return index of the files
+     * @throws IOException if a file cannot be read
+     */
+    public static DeclarationIndex build(Collection<String> filenames) throws IOException {
+        final DeclarationIndex index = new DeclarationIndex();
+        try {
+            filenames.parallelStream().forEach(filename -> {
+                try (ParseSession session = ParseSession.open()) {
+                    index.add(filename, new AstTree(session.parse(CharStreams.fromFileName(filename))));
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return index;
+    }
+
+    /**
+     * Reads an index written by {@link #save(String)}.
+     *
+     * @param filename index file
+     * @return loaded index
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    public static DeclarationIndex load(String filename) throws IOException {
+        final DeclarationIndex index = new DeclarationIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(filename))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a declaration index: " + filename);
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported declaration index version " + version + ": " + filename);
+            }
+            final String[] dictionary = new String[in.readInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = index.names.intern(in.readUTF());
+            }
+            final Kind[] kinds = Kind.values();
+            final int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                final String file = dictionary[in.readInt()];
+                final List<Declaration> declarations = new ArrayList<>();
+                final int declarationCount = in.readInt();
+                for (int j = 0; j < declarationCount; j++) {
+                    final Kind kind = kinds[in.readByte()];
+                    final String name = dictionary[in.readInt()];
+                    final int owner = in.readInt();
+                    final int line = in.readInt();
+                    final int column = in.readInt();
+                    final String[] supertypes = new String[in.readInt()];
+                    for (int k = 0; k < supertypes.length; k++) {
+                        supertypes[k] = dictionary[in.readInt()];
+                    }
+                    declarations.add(new Declaration(kind, file, name,
+                        owner < 0 ? null : dictionary[owner], line, column, supertypes));
+                }
+                index.put(file, declarations);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Writes the index to a file. Files added while saving may or may not be
+     * included.
+     *
+     * @param filename index file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        final Map<String, List<Declaration>> files = new TreeMap<>(byFile);
+        final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Declaration>> entry : files.entrySet()) {
+            addToDictionary(dictionary, entry.getKey());
+            for (Declaration declaration : entry.getValue()) {
+                addToDictionary(dictionary, declaration.getName());
+                addToDictionary(dictionary, declaration.getOwner());
+                for (String supertype : declaration.supertypes()) {
+                    addToDictionary(dictionary, supertype);
+                }
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(filename))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dictionary.size());
+            for (String name : dictionary.keySet()) {
+                out.writeUTF(name);
+            }
+            out.writeInt(files.size());
+            for (Map.Entry<String, List<Declaration>> entry : files.entrySet()) {
+                out.writeInt(dictionary.get(entry.getKey()));
+                out.writeInt(entry.getValue().size());
+                for (Declaration declaration : entry.getValue()) {
+                    out.writeByte(declaration.getKind().ordinal());
+                    out.writeInt(dictionary.get(declaration.getName()));
+                    out.writeInt(declaration.getOwner() == null ? -1 : dictionary.get(declaration.getOwner()));
+                    out.writeInt(declaration.getLineNumber());
+                    out.writeInt(declaration.getColumnNumber());
+                    out.writeInt(declaration.supertypes().length);
+                    for (String supertype : declaration.supertypes()) {
+                        out.writeInt(dictionary.get(supertype));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the declarations of a file, replacing those indexed for it
+     * before.
+     *
+     * @param filename name of the file
+     * @param tree flattened tree of the file
+     */
+    public void add(String filename, AstTree tree) {
+        final String file = names.intern(filename);
+        put(file, new Extractor(file, tree, names).extract());
+    }
+
+    /**
+     * Drops the declarations of a file.
+     *
+     * @param filename name of the file
+     */
+    public void remove(String filename) {
+        final List<Declaration> declarations = byFile.remove(filename);
+        if (declarations != null) {
+            for (Declaration declaration : declarations) {
+                switch (declaration.getKind()) {
+                    case TYPE -> {
+                        removeFrom(typesByQualifiedName, declaration.getQualifiedName(), declaration);
+                        removeFrom(membersByName, declaration.getName(), declaration);
+                        for (String supertype : declaration.supertypes()) {
+                            removeFrom(subtypesByName, simpleName(supertype), declaration);
+                        }
+                    }
+                    case METHOD, FIELD -> removeFrom(membersByName, declaration.getName(), declaration);
+                    default -> {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Names of all indexed files.
+     *
+     * @return unmodifiable view of the file names
+     */
+    public Set<String> getFiles() {
+        return Collections.unmodifiableSet(byFile.keySet());
+    }
+
+    /**
+     * Declarations of a file in source order.
+     *
+     * @param filename name of the file
+     * @return declarations, empty if the file is not indexed
+     */
+    public List<Declaration> getDeclarations(String filename) {
+        return byFile.getOrDefault(filename, Collections.emptyList());
+    }
+
+    /**
+     * Types, methods and fields with the given simple name, in any file.
+     *
+     * @param name simple name
+     * @return matching declarations, in no particular order
+     */
+    public List<Declaration> findByName(String name) {
+        return copyOf(membersByName.get(name));
+    }
+
+    /**
+     * Looks up a type by its qualified name, such as
+     * {@code java.util.Map.Entry}.
+     *
+     * @param qualifiedName qualified type name
+     * @return type declaration, or null if there is none. If several files
+     *     declare the type, any one of them.
+     */
+    public Declaration findType(String qualifiedName) {
+        final Set<Declaration> types = typesByQualifiedName.get(qualifiedName);
+        Declaration result = null;
+        if (types != null) {
+            for (Declaration type : types) {
+                result = type;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves a type name as written in a file, by the rules of the Java
+     * language: types declared in the file, single type imports, the file's
+     * package, then on demand imports. A dotted name is tried as a qualified
+     * name first, then as a member type of its resolved first part.
+     *
+     * @param filename file the name is used in
+     * @param name simple or dotted type name
+     * @return type declaration, or null if it is not indexed
+     */
+    public Declaration resolve(String filename, String name) {
+        Declaration result;
+        final int dot = name.indexOf('.');
+        if (dot < 0) {
+            result = resolveSimpleName(filename, name);
+        }
+        else {
+            result = findType(name);
+            if (result == null) {
+                final Declaration outer = resolveSimpleName(filename, name.substring(0, dot));
+                if (outer != null) {
+                    result = findType(outer.getQualifiedName() + name.substring(dot));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indexed types that directly extend or implement the given type.
+     *
+     * @param qualifiedName qualified name of the supertype
+     * @return direct subtypes, in no particular order
+     */
+    public List<Declaration> getSubtypes(String qualifiedName) {
+        final String simpleName = simpleName(qualifiedName);
+        final List<Declaration> result = new ArrayList<>();
+        for (Declaration type : copyOf(subtypesByName.get(simpleName))) {
+            for (String supertype : type.supertypes()) {
+                if (simpleName.equals(simpleName(supertype))) {
+                    final Declaration resolved = resolve(type.getFile(), supertype);
+                    if (resolved != null && qualifiedName.equals(resolved.getQualifiedName())) {
+                        result.add(type);
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of indexed declarations.
+     *
+     * @return declaration count
+     */
+    public int size() {
+        int result = 0;
+        for (List<Declaration> declarations : byFile.values()) {
+            result += declarations.size();
+        }
+        return result;
+    }
+
+    private Declaration resolveSimpleName(String filename, String name) {
+        final List<Declaration> declarations = getDeclarations(filename);
+        String packageName = null;
+        Declaration declared = null;
+        Declaration singleImport = null;
+        for (Declaration declaration : declarations) {
+            if (declaration.getKind() == Kind.TYPE) {
+                if (declared == null && declaration.getName().equals(name)) {
+                    declared = declaration;
+                }
+            }
+            else if (declaration.getKind() == Kind.PACKAGE) {
+                packageName = declaration.getName();
+            }
+            else if (singleImport == null && declaration.getKind() == Kind.IMPORT
+                    && simpleName(declaration.getName()).equals(name)) {
+                singleImport = declaration;
+            }
+        }
+
+        final Declaration result;
+        if (declared != null) {
+            result = declared;
+        }
+        else if (singleImport != null) {
+            // The import shadows the package, even if the imported type is not indexed
+            result = findType(singleImport.getName());
+        }
+        else {
+            result = findInPackageOrOnDemand(declarations, packageName, name);
+        }
+        return result;
+    }
+
+    private Declaration findInPackageOrOnDemand(List<Declaration> declarations, String packageName,
+                                                String name) {
+        Declaration result = findType(packageName == null ? name : packageName + '.' + name);
+        for (Declaration declaration : declarations) {
+            if (result != null) {
+                break;
+            }
+            if (declaration.getKind() == Kind.IMPORT && declaration.getName().endsWith(".*")) {
+                final String prefix = declaration.getName();
+                result = findType(prefix.substring(0, prefix.length() - 1) + name);
+            }
+        }
+        return result;
+    }
+
+    private void put(String file, List<Declaration> declarations) {
+        remove(file);
+        for (Declaration declaration : declarations) {
+            switch (declaration.getKind()) {
+                case TYPE -> {
+                    addTo(typesByQualifiedName, declaration.getQualifiedName(), declaration);
+                    addTo(membersByName, declaration.getName(), declaration);
+                    for (String supertype : declaration.supertypes()) {
+                        addTo(subtypesByName, simpleName(supertype), declaration);
+                    }
+                }
+                case METHOD, FIELD -> addTo(membersByName, declaration.getName(), declaration);
+                default -> {
+                }
+            }
+        }
+        byFile.put(file, Collections.unmodifiableList(declarations));
+    }
+
+    private static void addTo(Map<String, Set<Declaration>> map, String key, Declaration declaration) {
+        map.compute(key, (name, declarations) -> {
+            final Set<Declaration> result = declarations == null ? ConcurrentHashMap.newKeySet() : declarations;
+            result.add(declaration);
+            return result;
+        });
+    }
+
+    private static void removeFrom(Map<String, Set<Declaration>> map, String key, Declaration declaration) {
+        map.computeIfPresent(key, (name, declarations) -> {
+            declarations.remove(declaration);
+            return declarations.isEmpty() ? null : declarations;
+        });
+    }
+
+    private static List<Declaration> copyOf(Set<Declaration> declarations) {
+        return declarations == null ? Collections.emptyList() : new ArrayList<>(declarations);
+    }
+
+    private static void addToDictionary(Map<String, Integer> dictionary, String name) {
+        if (name != null) {
+            dictionary.putIfAbsent(name, dictionary.size());
+        }
+    }
+
+    private static String simpleName(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        boolean result = false;
+        for (int candidate : values) {
+            if (candidate == value) {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects the declarations of one tree in a single pre-order scan.
+     * Enclosing types come before their members, so the qualified name of the
+     * owner is always known. Code bodies are stepped over as a whole.
+     */
+    private static final class Extractor {
+        private final String file;
+        private final AstTree tree;
+        private final IdentifierTable names;
+        private final List<Declaration> declarations = new ArrayList<>();
+        private final Map<Integer, String> typeNames = new HashMap<>();
+        private String packageName;
+
+        Extractor(String file, AstTree tree, IdentifierTable names) {
+            this.file = file;
+            this.tree = tree;
+            this.names = names;
+        }
+
+        List<Declaration> extract() {
+            int id = 0;
+            while (id < tree.size()) {
+                final int type = tree.getType(id);
+                if (contains(LOCAL_SCOPES, type)) {
+                    id = tree.getSubtreeEnd(id);
+                }
+                else if (type == PACKAGE_DECLARATION) {
+                    addPackage(id);
+                }
+                else if (type == SINGLE_TYPE_IMPORT || type == TYPE_IMPORT_ON_DEMAND) {
+                    addImport(id, Kind.IMPORT);
+                }
+                else if (type == SINGLE_STATIC_IMPORT || type == STATIC_IMPORT_ON_DEMAND) {
+                    addImport(id, Kind.STATIC_IMPORT);
+                }
+                else if (isTypeDeclaration(type)) {
+                    addType(id);
+                }
+                else if (type == METHOD_DECLARATION) {
+                    addMethod(id);
+                }
+                else if (type == FIELD_DECLARATION) {
+                    addFields(id);
+                }
+                id++;
+            }
+            return declarations;
+        }
+
+        private void addPackage(int id) {
+            final List<String> found = collectNames(id);
+            if (!found.isEmpty()) {
+                packageName = found.get(0);
+                add(Kind.PACKAGE, packageName, null, tree.getNode(id), null);
+            }
+        }
+
+        private void addImport(int id, Kind kind) {
+            final List<String> found = collectNames(id);
+            if (!found.isEmpty()) {
+                add(kind, found.get(0), null, tree.getNode(id), null);
+            }
+        }
+
+        // classModifier* 'class' identifier ... superclass? superinterfaces? classBody,
+        // annotation types have '@' 'interface' identifier
+        private void addType(int id) {
+            final ASTNode[] children = tree.getNode(id).children();
+            ASTNode name = null;
+            final List<String> supertypes = new ArrayList<>();
+            for (int i = 0; i < children.length; i++) {
+                final int type = children[i].getType();
+                if (name == null && i + 1 < children.length
+                        && (type == JavaLexer.CLASS || type == JavaLexer.INTERFACE || type == JavaLexer.ENUM)) {
+                    name = children[i + 1];
+                }
+                else if (type == SUPERCLASS || type == SUPERINTERFACES || type == EXTENDS_INTERFACES) {
+                    supertypes.addAll(collectNames(((ASTNodeImpl) children[i]).getId()));
+                }
+            }
+            if (name != null) {
+                final Declaration declaration = add(Kind.TYPE, names.intern(name.getTextView()),
+                    getOwner(id), name, supertypes.toArray(new String[0]));
+                typeNames.put(id, names.intern(declaration.getQualifiedName()));
+            }
+        }
+
+        // methodModifier* methodHeader methodBody, the name starts the methodDeclarator
+        private void addMethod(int id) {
+            final int end = tree.getSubtreeEnd(id);
+            for (int i = id + 1; i <= end; i++) {
+                if (tree.getType(i) == METHOD_DECLARATOR) {
+                    final ASTNode name = tree.getNode(i).children()[0];
+                    add(Kind.METHOD, names.intern(name.getTextView()), getOwner(id), name, null);
+                    break;
+                }
+            }
+        }
+
+        // fieldModifier* unannType variableDeclaratorList ';', where single declarators
+        // are flattened down to their identifier
+        private void addFields(int id) {
+            final ASTNode[] children = tree.getNode(id).children();
+            if (children.length >= 3) {
+                final ASTNode list = children[children.length - 2];
+                final ASTNode[] declarators = list.getType() == VARIABLE_DECLARATOR_LIST
+                    ? ((ASTNodeImpl) list).children() : new ASTNode[] {list};
+                final String owner = getOwner(id);
+                for (ASTNode declarator : declarators) {
+                    if (declarator.getType() != JavaLexer.COMMA) {
+                        ASTNodeImpl name = (ASTNodeImpl) declarator;
+                        while (name.children().length > 0) {
+                            name = (ASTNodeImpl) name.children()[0];
+                        }
+                        add(Kind.FIELD, names.intern(name.getTextView()), owner, name, null);
+                    }
+                }
+            }
+        }
+
+        private Declaration add(Kind kind, String name, String owner, ASTNode position, String[] supertypes) {
+            final Declaration declaration = new Declaration(kind, file, name, owner,
+                position.getLineNumber(), position.getColumnNumber(), supertypes);
+            declarations.add(declaration);
+            return declaration;
+        }
+
+        private String getOwner(int id) {
+            int parent = tree.getParentId(id);
+            while (parent >= 0 && !isTypeDeclaration(tree.getType(parent))) {
+                parent = tree.getParentId(parent);
+            }
+            return parent < 0 ? packageName : typeNames.get(parent);
+        }
+
+        // Dotted names in the subtree, split at commas
+        private List<String> collectNames(int id) {
+            final List<String> result = new ArrayList<>();
+            final StringBuilder name = new StringBuilder();
+            final int end = tree.getSubtreeEnd(id);
+            int i = id;
+            while (i <= end) {
+                final int type = tree.getType(i);
+                if (contains(SKIPPED_TYPES, type)) {
+                    i = tree.getSubtreeEnd(i);
+                }
+                else if (type == JavaLexer.COMMA) {
+                    addName(result, name);
+                }
+                else if (!NodeTypes.isRule(type) && !contains(SKIPPED_TOKENS, type)) {
+                    name.append(tree.getNode(i).getTextView());
+                }
+                i++;
+            }
+            addName(result, name);
+            return result;
+        }
+
+        private void addName(List<String> result, StringBuilder name) {
+            if (name.length() > 0) {
+                result.add(names.intern(name));
+                name.setLength(0);
+            }
+        }
+
+        private static boolean isTypeDeclaration(int type) {
+            return type == CLASS_DECLARATION || type == INTERFACE_DECLARATION || type == ENUM_DECLARATION
+                || type == ANNOTATION_TYPE_DECLARATION;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package parseva.tools;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+import parseva.tools.grammar.JavaLexer;
+import parseva.tools.grammar.JavaParser;
+
+/**
+ * A bounded replacement for the static DFA and prediction context cache that
+ * ANTLR shares between all {@link JavaLexer} and {@link JavaParser} instances.
+ * Those static caches only ever grow, which makes the heap of a long-lived
+ * process creep up with every unusual file it sees.
+ *
+ * <p>Lexers and parsers obtained from (or configured by) this class use the
+ * cache's current <em>generation</em>: a private set of DFAs and context
+ * caches. {@link #reset()} builds a new generation, primes it with the warm-up
+ * corpus and only then publishes it. Parses that are in flight keep using the
+ * generation they started with, and the old one becomes garbage once they
+ * finish. A {@link Policy} decides when a reset happens automatically; it is
+ * consulted whenever a parser is configured. An automatic reset with a
+ * warm-up corpus builds and primes the new generation on a background thread,
+ * so the parse that triggered it goes ahead on the current generation
+ * instead of waiting for the corpus.</p>
+ */
+public final class DfaCache {
+
+    // Rough per-object sizes for a 64 bit JVM with compressed oops, used
+    // by the memory estimate of Statistics.
+    private static final int STATE_BYTES = 40;
+    private static final int MAP_ENTRY_BYTES = 40;
+    private static final int CONFIG_SET_BYTES = 80;
+    private static final int CONFIG_BYTES = 40;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+    private final AtomicBoolean resetting = new AtomicBoolean();
+    private volatile Policy policy = Policy.never();
+    private volatile List<String> warmUpCorpus = List.of();
+
+    /**
+     * Creates a cache with an empty first generation that is never reset
+     * automatically.
+     */
+    public DfaCache() {
+        current.set(new Generation(0));
+    }
+
+    /**
+     * Clears the static DFAs shared by all lexers and parsers that are not
+     * managed by a {@code DfaCache}. The static prediction context cache has no
+     * way to be cleared; use a {@code DfaCache} if that matters.
+     */
+    public static void clearSharedDfa() {
+        new JavaLexer(CharStreams.fromString("")).getInterpreter().clearDFA();
+        new JavaParser(null).getInterpreter().clearDFA();
+    }
+
+    /**
+     * Sets the policy that triggers automatic resets.
+     *
+     * @param newPolicy reset policy
+     */
+    public void setPolicy(Policy newPolicy) {
+        policy = newPolicy;
+    }
+
+    /**
+     * Sets sources that are parsed into every new generation before it is
+     * published, so that common decisions are predicted from the DFA again
+     * right after a reset.
+     *
+     * @param sources representative source files, as text
+     */
+    public void setWarmUpCorpus(List<String> sources) {
+        warmUpCorpus = List.copyOf(sources);
+    }
+
+    /**
+     * Creates a lexer that uses this cache.
+     *
+     * @param input source code
+     * @return new lexer
+     */
+    public JavaLexer newLexer(CharStream input) {
+        final JavaLexer lexer = new JavaLexer(input);
+        configure(lexer);
+        return lexer;
+    }
+
+    /**
+     * Creates a parser that uses this cache.
+     *
+     * @param tokens token source
+     * @return new parser
+     */
+    public JavaParser newParser(TokenStream tokens) {
+        final JavaParser parser = new JavaParser(tokens);
+        configure(parser);
+        return parser;
+    }
+
+    /**
+     * Makes the given lexer use the current generation of this cache.
+     *
+     * @param lexer lexer to configure
+     */
+    public void configure(JavaLexer lexer) {
+        final Generation generation = current.get();
+        lexer.setInterpreter(new LexerATNSimulator(lexer, lexer.getATN(),
+            generation.lexerDfa, generation.lexerContexts));
+    }
+
+    /**
+     * Makes the given parser use the current generation of this cache. If the
+     * policy asks for a reset, a new generation is started: right away when
+     * there is no warm-up corpus, otherwise on a background thread, while
+     * this parser still gets the current generation.
+     *
+     * @param parser parser to configure
+     */
+    public void configure(JavaParser parser) {
+        applyPolicy();
+        final Generation generation = current.get();
+        parser.setInterpreter(new ParserATNSimulator(parser, parser.getATN(),
+            generation.parserDfa, generation.parserContexts));
+    }
+
+    /**
+     * Replaces the current generation by a fresh one, primed with the warm-up
+     * corpus on the calling thread. Parses that already started are not
+     * affected. If another thread is resetting at the same time, this call
+     * does nothing.
+     */
+    public void reset() {
+        if (resetting.compareAndSet(false, true)) {
+            replaceGeneration();
+        }
+    }
+
+    /**
+     * Parses the given sources with the current generation, to prime it
+     * without a reset. Like the warm-up corpus, the states this adds do not
+     * count towards {@link Policy#maxStates(long)}, nor do states that
+     * concurrent parses add meanwhile.
+     *
+     * @param sources source files, as text
+     */
+    public void warmUp(List<String> sources) {
+        final Generation generation = current.get();
+        for (String source : sources) {
+            generation.parse(source);
+        }
+        generation.warmStates = generation.countStates();
+    }
+
+    /**
+     * Collects DFA sizes of the current generation. Concurrent parses may
+     * keep adding states while this runs.
+     *
+     * @return snapshot of the cache size
+     */
+    public Statistics getStatistics() {
+        final Generation generation = current.get();
+        final int[] states = new int[generation.parserDfa.length];
+        final long[] bytes = new long[generation.parserDfa.length];
+        for (int i = 0; i < states.length; i++) {
+            final DFA dfa = generation.parserDfa[i];
+            synchronized (dfa.states) {
+                states[i] = dfa.states.size();
+                bytes[i] = estimateBytes(dfa);
+            }
+        }
+        long lexerStates = 0;
+        long lexerBytes = 0;
+        for (DFA dfa : generation.lexerDfa) {
+            synchronized (dfa.states) {
+                lexerStates += dfa.states.size();
+                lexerBytes += estimateBytes(dfa);
+            }
+        }
+        final int contexts;
+        synchronized (generation.parserContexts) {
+            contexts = generation.parserContexts.size();
+        }
+        return new Statistics(generation.number, states, bytes, lexerStates, lexerBytes, contexts);
+    }
+
+    private void applyPolicy() {
+        final Generation generation = current.get();
+        if (!resetting.get()
+                && policy.shouldReset(generation.countStates() - generation.warmStates,
+                    Duration.ofNanos(System.nanoTime() - generation.createdNanos))
+                && resetting.compareAndSet(false, true)) {
+            if (warmUpCorpus.isEmpty()) {
+                replaceGeneration();
+            }
+            else {
+                final Thread worker = new Thread(this::replaceGeneration, "dfa-cache-reset");
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+    }
+
+    // Caller has set the resetting flag, which is cleared here.
+    private void replaceGeneration() {
+        try {
+            final Generation fresh = new Generation(current.get().number + 1);
+            for (String source : warmUpCorpus) {
+                fresh.parse(source);
+            }
+            fresh.warmStates = fresh.countStates();
+            current.set(fresh);
+        }
+        finally {
+            resetting.set(false);
+        }
+    }
+
+    // Caller holds the lock on dfa.states.
+    private static long estimateBytes(DFA dfa) {
+        long bytes = 0;
+        for (DFAState state : dfa.states.keySet()) {
+            bytes += STATE_BYTES + MAP_ENTRY_BYTES;
+            if (state.edges != null) {
+                bytes += ARRAY_HEADER_BYTES + (long) state.edges.length * REFERENCE_BYTES;
+            }
+            if (state.configs != null) {
+                bytes += CONFIG_SET_BYTES
+                    + (long) state.configs.size() * (CONFIG_BYTES + REFERENCE_BYTES);
+            }
+        }
+        return bytes;
+    }
+
+    private static DFA[] createDfa(ATN atn) {
+        final DFA[] result = new DFA[atn.getNumberOfDecisions()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new DFA(atn.getDecisionState(i), i);
+        }
+        return result;
+    }
+
+    /**
+     * Decides when the cache is reset automatically.
+     */
+    @FunctionalInterface
+    public interface Policy {
+
+        /**
+         * Whether the current generation should be replaced.
+         *
+         * @param stateCount number of parser DFA states the generation gained
+         *     since it was published, not counting those from the warm-up
+         *     corpus or {@link DfaCache#warmUp(List)}
+         * @param age time since the generation was created
+         * @return true to reset the cache
+         */
+        boolean shouldReset(long stateCount, Duration age);
+
+        /**
+         * Never resets; the cache grows like ANTLR's static one.
+         *
+         * @return policy
+         */
+        static Policy never() {
+            return (stateCount, age) -> false;
+        }
+
+        /**
+         * Resets once the parser DFA has grown by more than the given number of
+         * states beyond what the warm-up corpus and
+         * {@link DfaCache#warmUp(List)} added.
+         *
+         * @param maxStates state count threshold
+         * @return policy
+         */
+        static Policy maxStates(long maxStates) {
+            return (stateCount, age) -> stateCount > maxStates;
+        }
+
+        /**
+         * Resets once a generation is older than the given age.
+         *
+         * @param maxAge age threshold
+         * @return policy
+         */
+        static Policy maxAge(Duration maxAge) {
+            return (stateCount, age) -> age.compareTo(maxAge) > 0;
+        }
+    }
+
+    /**
+     * Snapshot of the size of a generation.
+     */
+    public static final class Statistics {
+        private final long generation;
+        private final int[] states;
+        private final long[] bytes;
+        private final long lexerStates;
+        private final long lexerBytes;
+        private final int contexts;
+
+        Statistics(long generation, int[] states, long[] bytes,
+                   long lexerStates, long lexerBytes, int contexts) {
+            this.generation = generation;
+            this.states = states;
+            this.bytes = bytes;
+            this.lexerStates = lexerStates;
+            this.lexerBytes = lexerBytes;
+            this.contexts = contexts;
+        }
+
+        /**
+         * Number of the generation, counting resets since creation.
+         *
+         * @return generation number
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * Number of parser decisions.
+         *
+         * @return decision count
+         */
+        public int getDecisionCount() {
+            return states.length;
+        }
+
+        /**
+         * DFA states of a single parser decision.
+         *
+         * @param decision decision number
+         * @return state count
+         */
+        public int getStateCount(int decision) {
+            return states[decision];
+        }
+
+        /**
+         * Approximate heap held by the DFA of a single parser decision,
+         * excluding the shared prediction contexts.
+         *
+         * @param decision decision number
+         * @return estimated bytes
+         */
+        public long getEstimatedBytes(int decision) {
+            return bytes[decision];
+        }
+
+        /**
+         * DFA states of all parser decisions.
+         *
+         * @return state count
+         */
+        public long getTotalStateCount() {
+            long total = 0;
+            for (int count : states) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Approximate heap held by all parser and lexer DFAs.
+         *
+         * @return estimated bytes
+         */
+        public long getTotalEstimatedBytes() {
+            long total = lexerBytes;
+            for (long count : bytes) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * DFA states of all lexer decisions.
+         *
+         * @return state count
+         */
+        public long getLexerStateCount() {
+            return lexerStates;
+        }
+
+        /**
+         * Entries of the parser prediction context cache.
+         *
+         * @return context count
+         */
+        public int getContextCount() {
+            return contexts;
+        }
+
+        /**
+         * Parser decisions ordered by estimated size, largest first.
+         *
+         * @param limit maximum number of decisions to return
+         * @return decision numbers
+         */
+        public List<Integer> getLargestDecisions(int limit) {
+            final List<Integer> result = new ArrayList<>();
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] > 0) {
+                    result.add(i);
+                }
+            }
+            result.sort((first, second) -> Long.compare(bytes[second], bytes[first]));
+            return result.subList(0, Math.min(limit, result.size()));
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{generation=" + generation
+                + ", parserStates=" + getTotalStateCount()
+                + ", lexerStates=" + lexerStates
+                + ", contexts=" + contexts
+                + ", estimatedBytes=" + getTotalEstimatedBytes() + '}';
+        }
+    }
+
+    /**
+     * One set of DFAs and context caches.
+     */
+    private static final class Generation {
+        private final long number;
+        private final long createdNanos = System.nanoTime();
+        private final DFA[] lexerDfa = createDfa(JavaLexer._ATN);
+        private final DFA[] parserDfa = createDfa(JavaParser._ATN);
+        private final PredictionContextCache lexerContexts = new PredictionContextCache();
+        private final PredictionContextCache parserContexts = new PredictionContextCache();
+        // States right after the last warm-up
+        private volatile long warmStates;
+
+        Generation(long number) {
+            this.number = number;
+        }
+
+        long countStates() {
+            long total = 0;
+            for (DFA dfa : parserDfa) {
+                total += dfa.states.size();
+            }
+            return total;
+        }
+
+        void parse(String source) {
+            final JavaLexer lexer = new JavaLexer(CharStreams.fromString(source));
+            lexer.setInterpreter(new LexerATNSimulator(lexer, lexer.getATN(), lexerDfa, lexerContexts));
+            lexer.removeErrorListeners();
+            final JavaParser parser = new JavaParser(new CommonTokenStream(lexer));
+            parser.setInterpreter(new ParserATNSimulator(parser, parser.getATN(), parserDfa, parserContexts));
+            parser.removeErrorListeners();
+            parser.compilationUnit();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package parseva.tools;
+
+import java.nio.CharBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interning table for identifier text. Passing the same table to the
+ * {@link AstTree}s of many files makes every occurrence of a name share one
+ * {@code String}; a table per file deduplicates within that file only.
+ * Lookups compare a view of the source, so a name that is already in the
+ * table is never copied. The table is thread safe.
+ */
+public final class IdentifierTable {
+
+    // CharBuffer keys: content based equals/hashCode over any CharSequence slice
+    private final Map<CharBuffer, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared string for the given slice of text, adding it first
+     * if needed.
+     *
+     * @param text text containing the name
+     * @param start index of the first char of the name
+     * @param end index after the last char of the name
+     * @return interned name
+     */
+    public String intern(CharSequence text, int start, int end) {
+        String name = names.get(CharBuffer.wrap(text, start, end));
+        if (name == null) {
+            final String copy = text.subSequence(start, end).toString();
+            name = names.putIfAbsent(CharBuffer.wrap(copy), copy);
+            if (name == null) {
+                name = copy;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Returns the shared string for the given name.
+     *
+     * @param name name to intern
+     * @return interned name
+     */
+    public String intern(CharSequence name) {
+        return intern(name, 0, name.length());
+    }
+
+    /**
+     * Number of distinct names in the table.
+     *
+     * @return table size
+     */
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,238 @@
+package parseva.tools;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.Vocabulary;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.atn.Transition;
+
+import parseva.tools.grammar.JavaLexer;
+import parseva.tools.grammar.JavaParser;
+
+/**
+ * Maps {@link parseva.tools.api.ASTNode} types to names and back. Leaf nodes
+ * use the lexer token type, inner nodes use the parser rule index shifted past
+ * the largest token type, so both share a single dense range of ints.
+ */
+public final class NodeTypes {
+
+    /**
+     * First type used for parser rule nodes.
+     */
+    public static final int RULE_TYPE_OFFSET = JavaLexer.VOCABULARY.getMaxTokenType() + 1;
+
+    /**
+     * Number of distinct non-EOF node types.
+     */
+    public static final int TYPE_COUNT = RULE_TYPE_OFFSET + JavaParser.ruleNames.length;
+
+    private static final Map<String, Integer> TYPES_BY_NAME = createTypesByName();
+
+    private static final String[] FIXED_TEXTS = createFixedTexts();
+
+    private static final boolean[] COLLAPSED_RULES = createCollapsedRules();
+
+    private static final String EOF_TEXT = "<EOF>";
+
+    private NodeTypes() {
+    }
+
+    /**
+     * Node type of an inner node created from the given parser rule.
+     *
+     * @param ruleIndex parser rule index
+     * @return node type
+     */
+    public static int ruleType(int ruleIndex) {
+        return RULE_TYPE_OFFSET + ruleIndex;
+    }
+
+    /**
+     * Whether the given node type belongs to an inner (rule) node.
+     *
+     * @param type node type
+     * @return true for rule nodes
+     */
+    public static boolean isRule(int type) {
+        return type >= RULE_TYPE_OFFSET;
+    }
+
+    /**
+     * Whether nodes of the given type can occur in a flattened tree. A rule
+     * whose every alternative matches exactly one token or sub-rule, such as
+     * {@code importDeclaration}, {@code classBodyDeclaration} or
+     * {@code statement}, always starts a single-child chain, which
+     * {@link AstTree} collapses into the innermost rule of the chain. Token
+     * types always occur.
+     *
+     * @param type node type
+     * @return false for rules that are always collapsed
+     */
+    public static boolean isKeptWhenFlattened(int type) {
+        return !isRule(type) || !COLLAPSED_RULES[type - RULE_TYPE_OFFSET];
+    }
+
+    /**
+     * Human readable name of a node type: the parser rule name for inner
+     * nodes, the symbolic token name (or literal, if there is none) for leaves.
+     *
+     * @param type node type
+     * @return name of the type
+     */
+    public static String getName(int type) {
+        final String name;
+        if (isRule(type)) {
+            name = JavaParser.ruleNames[type - RULE_TYPE_OFFSET];
+        }
+        else if (type == Token.EOF) {
+            name = "EOF";
+        }
+        else {
+            name = JavaLexer.VOCABULARY.getDisplayName(type);
+        }
+        return name;
+    }
+
+    /**
+     * Resolves a rule name, symbolic token name or quoted token literal to a
+     * node type.
+     *
+     * @param name name of the type
+     * @return node type
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static int getType(String name) {
+        final Integer type = TYPES_BY_NAME.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown node type: " + name);
+        }
+        return type;
+    }
+
+    /**
+     * The text every token of the given type has, for keywords, operators and
+     * separators. Such tokens can share one constant instead of copying their
+     * text out of the source.
+     *
+     * @param type token type
+     * @return constant token text, or null if the text varies
+     */
+    public static String getFixedText(int type) {
+        final String text;
+        if (type == Token.EOF) {
+            text = EOF_TEXT;
+        }
+        else if (type > 0 && type < FIXED_TEXTS.length) {
+            text = FIXED_TEXTS[type];
+        }
+        else {
+            text = null;
+        }
+        return text;
+    }
+
+    /**
+     * Text of the given token, without copying it out of the source if its
+     * type has a fixed text. Tokens conjured up by error recovery keep their
+     * own text, such as {@code <missing ';'>}.
+     *
+     * @param token token
+     * @return token text
+     */
+    public static String getTokenText(Token token) {
+        String text = null;
+        if (token.getStartIndex() >= 0) {
+            text = getFixedText(token.getType());
+        }
+        if (text == null) {
+            text = token.getText();
+        }
+        return text;
+    }
+
+    private static String[] createFixedTexts() {
+        final Vocabulary vocabulary = JavaLexer.VOCABULARY;
+        final String[] texts = new String[vocabulary.getMaxTokenType() + 1];
+        for (int i = 1; i < texts.length; i++) {
+            final String literal = vocabulary.getLiteralName(i);
+            if (literal != null) {
+                // Literal names are quoted: 'class'
+                texts[i] = literal.substring(1, literal.length() - 1).intern();
+            }
+        }
+        return texts;
+    }
+
+    private static boolean[] createCollapsedRules() {
+        final boolean[] result = new boolean[JavaParser.ruleNames.length];
+        for (int rule = 0; rule < result.length; rule++) {
+            result[rule] = !canHaveOtherChildCount(JavaParser._ATN, rule);
+        }
+        return result;
+    }
+
+    // Walks the ATN of the rule, counting matched tokens and called rules up to
+    // two; predicates are ignored, so the answer errs on the side of true
+    private static boolean canHaveOtherChildCount(ATN atn, int rule) {
+        final ATNState stop = atn.ruleToStopState[rule];
+        final BitSet seen = new BitSet();
+        final Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(atn.ruleToStartState[rule].stateNumber * 3);
+        boolean result = false;
+        while (!result && !pending.isEmpty()) {
+            final int key = pending.pop();
+            final ATNState state = atn.states.get(key / 3);
+            final int children = key % 3;
+            if (state == stop) {
+                result = children != 1;
+            }
+            else {
+                for (int i = 0; i < state.getNumberOfTransitions(); i++) {
+                    final Transition transition = state.transition(i);
+                    final int next;
+                    if (transition instanceof RuleTransition call) {
+                        next = call.followState.stateNumber * 3 + Math.min(children + 1, 2);
+                    }
+                    else if (transition.isEpsilon()) {
+                        next = transition.target.stateNumber * 3 + children;
+                    }
+                    else {
+                        next = transition.target.stateNumber * 3 + Math.min(children + 1, 2);
+                    }
+                    if (!seen.get(next)) {
+                        seen.set(next);
+                        pending.push(next);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Integer> createTypesByName() {
+        final Map<String, Integer> types = new HashMap<>();
+        final Vocabulary vocabulary = JavaLexer.VOCABULARY;
+        for (int i = 1; i <= vocabulary.getMaxTokenType(); i++) {
+            final String literal = vocabulary.getLiteralName(i);
+            if (literal != null) {
+                types.put(literal, i);
+            }
+            final String symbolic = vocabulary.getSymbolicName(i);
+            if (symbolic != null) {
+                types.put(symbolic, i);
+            }
+        }
+        types.put("EOF", Token.EOF);
+        for (int i = 0; i < JavaParser.ruleNames.length; i++) {
+            types.put(JavaParser.ruleNames[i], ruleType(i));
+        }
+        return types;
+    }
+}
@@ -0,0 +1,165 @@
+package parseva.tools;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import parseva.tools.grammar.JavaLexer;
+import parseva.tools.grammar.JavaParser;
+
+/**
+ * A lexer/parser pair that is kept per thread and reused from file to file,
+ * instead of building a new {@link JavaLexer}, {@link CommonTokenStream} and
+ * {@link JavaParser} for every file. Typical use, also from pool threads:
+ *
+ * <pre>
+ * {@code
+ * try (ParseSession session = ParseSession.open()) {
+ *     AstTree tree = session.parseAst(CharStreams.fromFileName(filename));
+ * }
+ * }
+ * </pre>
+ *
+ * A session belongs to the thread that opened it and must be closed there.
+ * {@link #close()} drops the token buffer and the last parse tree, and undoes
+ * anything callers changed through {@link #getParser()} or
+ * {@link #getLexer()}: error listeners, parse listeners, the error strategy,
+ * the prediction mode and the interpreters.
+ */
+public final class ParseSession implements AutoCloseable {
+
+    private static final ThreadLocal<ParseSession> SESSIONS = ThreadLocal.withInitial(ParseSession::new);
+
+    private final CharStream empty = CharStreams.fromString("");
+    private final JavaLexer lexer = new JavaLexer(empty);
+    private final CommonTokenStream tokens = new CommonTokenStream(lexer);
+    private final JavaParser parser = new JavaParser(tokens);
+    private final LexerATNSimulator lexerInterpreter = lexer.getInterpreter();
+    private final DFA[] parserDfa = parser.getInterpreter().decisionToDFA;
+    private final PredictionContextCache parserContexts = parser.getInterpreter().getSharedContextCache();
+    private DfaCache cache;
+    private boolean open;
+
+    private ParseSession() {
+    }
+
+    /**
+     * Opens the session of the current thread, using ANTLR's shared DFA.
+     *
+     * @return open session
+     */
+    public static ParseSession open() {
+        return open(null);
+    }
+
+    /**
+     * Opens the session of the current thread. If that session is already
+     * open (a nested parse on the same thread), a new unpooled one is returned.
+     *
+     * @param dfaCache DFA cache to parse with, or null for ANTLR's shared DFA
+     * @return open session
+     */
+    public static ParseSession open(DfaCache dfaCache) {
+        ParseSession session = SESSIONS.get();
+        if (session.open) {
+            session = new ParseSession();
+        }
+        session.open = true;
+        session.cache = dfaCache;
+        return session;
+    }
+
+    /**
+     * Parses the given input into a parse tree.
+     *
+     * @param input source code
+     * @return parse tree of the compilation unit
+     * @throws IllegalStateException if the session is closed
+     */
+    public ParseTree parse(CharStream input) {
+        if (!open) {
+            throw new IllegalStateException("Parse session is closed");
+        }
+        lexer.setInputStream(input);
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        if (cache != null) {
+            cache.configure(lexer);
+            cache.configure(parser);
+        }
+        return parser.compilationUnit();
+    }
+
+    /**
+     * Parses the given input into a flattened tree, keeping its comments.
+     *
+     * @param input source code
+     * @return flattened tree
+     */
+    public AstTree parseAst(CharStream input) {
+        return new AstTree(parse(input), tokens, null);
+    }
+
+    /**
+     * Parses the given input and prints it the way
+     * {@link AstPrinter#createAstString(String)} does.
+     *
+     * @param input source code
+     * @return printed tree
+     */
+    public String createAstString(CharStream input) {
+        return new AstPrinter(parse(input)).toString();
+    }
+
+    /**
+     * The pooled lexer. Changes made to it are undone by {@link #close()}.
+     *
+     * @return lexer of this session
+     */
+    public JavaLexer getLexer() {
+        return lexer;
+    }
+
+    /**
+     * The pooled parser. Changes made to it are undone by {@link #close()}.
+     *
+     * @return parser of this session
+     */
+    public JavaParser getParser() {
+        return parser;
+    }
+
+    @Override
+    public void close() {
+        lexer.setInputStream(empty);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(ConsoleErrorListener.INSTANCE);
+        lexer.setInterpreter(lexerInterpreter);
+
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        parser.removeErrorListeners();
+        parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+        parser.removeParseListeners();
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.setBuildParseTree(true);
+        parser.setTrace(false);
+        // A fresh simulator, a used one still references the last input and
+        // through its outer context the whole parse tree; the DFA is shared
+        final ParserATNSimulator interpreter =
+            new ParserATNSimulator(parser, parser.getATN(), parserDfa, parserContexts);
+        interpreter.setPredictionMode(PredictionMode.LL);
+        parser.setInterpreter(interpreter);
+
+        cache = null;
+        open = false;
+    }
+}
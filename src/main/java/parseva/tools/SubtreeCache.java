@@ -0,0 +1,61 @@
+package parseva.tools;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Memoizes per-subtree analysis results by {@link AstTree#getHash(int)}, so
+ * that unchanged classes and methods of a re-parsed file, or identical
+ * subtrees of other files, reuse earlier results. Only analyses that depend
+ * on nothing but the subtree itself may be cached this way; hashes ignore
+ * positions, so results must not contain line or column numbers.
+ *
+ * <p>The cache is thread safe and may be called recursively from the analysis
+ * it runs. It is unbounded, callers are expected to {@link #clear()} it.</p>
+ *
+ * @param <V> type of the cached results
+ */
+public final class SubtreeCache<V> {
+
+    private final Map<Long, V> results = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached result for the subtree of the given node, running
+     * the analysis if there is none yet.
+     *
+     * @param tree tree containing the node
+     * @param id id of the subtree root
+     * @param analysis analysis to run on a miss, must not return null
+     * @return cached or computed result
+     */
+    public V get(AstTree tree, int id, BiFunction<AstTree, Integer, V> analysis) {
+        final Long hash = tree.getHash(id);
+        V result = results.get(hash);
+        if (result == null) {
+            // Not computeIfAbsent: the analysis may recurse into this cache.
+            result = analysis.apply(tree, id);
+            final V previous = results.putIfAbsent(hash, result);
+            if (previous != null) {
+                result = previous;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of cached results.
+     *
+     * @return cache size
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public void clear() {
+        results.clear();
+    }
+}
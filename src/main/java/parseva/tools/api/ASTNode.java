@@ -20,6 +20,17 @@ public interface ASTNode {
      */
     String getText();
 
+    /**
+     * Node text as a view into the source, without copying it. Call
+     * {@code toString()} on the result to get a {@code String}. The default
+     * returns {@link #getText()}.
+     *
+     * @return node text
+     */
+    default CharSequence getTextView() {
+        return getText();
+    }
+
     /**
      * Node line number.
      *
@@ -48,6 +59,28 @@ public interface ASTNode {
      */
     ASTNode getParent();
 
+    /**
+     * Comments directly before this node, such as its Javadoc. A comment that
+     * shares a line with the token before this node belongs to that token's
+     * trailing comments instead. Comments are looked up on each call. The
+     * default returns no comments.
+     *
+     * @return leading comments, in source order
+     */
+    default ASTNode[] getLeadingComments() {
+        return new ASTNode[0];
+    }
+
+    /**
+     * Comments directly after this node that start on the line this node
+     * ends on. The default returns no comments.
+     *
+     * @return trailing comments, in source order
+     */
+    default ASTNode[] getTrailingComments() {
+        return new ASTNode[0];
+    }
+
     /**
      * Node index among parent's children.
      *
@@ -0,0 +1,94 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+public class AstDiffTest {
+
+    private static final String ORIGINAL = """
+        class A {
+            int first() { return 1; }
+            int second() { return 2; }
+        }
+        """;
+
+    private static final String EDITED = """
+        class A {
+
+            int first() { return 1; }
+            int second() { return 3; }
+        }
+        """;
+
+    @Test
+    public void testHashIgnoresPositions() {
+        final AstTree original = parse(ORIGINAL);
+        final AstTree moved = parse("\n\n" + ORIGINAL.replace("    ", "\t"));
+        assertEquals(original.getHash(0), moved.getHash(0));
+        assertTrue(AstDiff.compute(original, moved).isEmpty());
+        assertNotEquals(original.getHash(0), parse(EDITED).getHash(0));
+    }
+
+    @Test
+    public void testOnlyEditedMethodChanges() {
+        final AstTree original = parse(ORIGINAL);
+        final AstTree edited = parse(EDITED);
+        final AstDiff diff = AstDiff.compute(original, edited);
+        final int[] methods = AstQuery.compile("//methodDeclaration").selectIds(edited);
+
+        assertTrue(diff.isUnchanged(methods[0]));
+        assertEquals(edited.getHash(methods[0]), original.getHash(diff.getOldId(methods[0])));
+        assertFalse(diff.isUnchanged(methods[1]));
+        assertFalse(diff.isUnchanged(0));
+        assertEquals(diff.getChangedIds().length, diff.getRemovedIds().length);
+        for (int id : diff.getChangedIds()) {
+            // an ancestor of the edited method or a node inside it
+            assertTrue(id <= edited.getSubtreeEnd(methods[1])
+                && edited.getSubtreeEnd(id) >= methods[1]);
+        }
+    }
+
+    @Test
+    public void testRemovedDuplicateIsReported() {
+        final AstTree original = parse("class A { int f() { return 1; } int f() { return 1; } }");
+        final AstTree edited = parse("class A { int f() { return 1; } }");
+        final AstDiff diff = AstDiff.compute(original, edited);
+        final int[] methods = AstQuery.compile("//methodDeclaration").selectIds(original);
+
+        assertEquals(methods[0], diff.getOldId(AstQuery.compile("//methodDeclaration").selectIds(edited)[0]));
+        final int[] removed = diff.getRemovedIds();
+        // the ancestors of the deleted method, then all of its nodes
+        assertEquals(original.getSubtreeEnd(methods[1]) - methods[1] + 4, removed.length);
+        assertEquals(methods[1], removed[3]);
+        assertTrue(AstDiff.compute(edited, original).getChangedIds().length > 0);
+    }
+
+    @Test
+    public void testCacheReusesUnchangedSubtrees() {
+        final AstTree original = parse(ORIGINAL);
+        final AstTree edited = parse(EDITED);
+        final SubtreeCache<Integer> cache = new SubtreeCache<>();
+        final AtomicInteger runs = new AtomicInteger();
+        final AstQuery methods = AstQuery.compile("//methodDeclaration");
+
+        for (int id : methods.selectIds(original)) {
+            cache.get(original, id, (tree, node) -> runs.incrementAndGet());
+        }
+        for (int id : methods.selectIds(edited)) {
+            cache.get(edited, id, (tree, node) -> runs.incrementAndGet());
+        }
+        assertEquals(3, runs.get());
+        assertEquals(3, cache.size());
+    }
+
+    private static AstTree parse(String source) {
+        return AstTree.parse(CharStreams.fromString(source));
+    }
+}
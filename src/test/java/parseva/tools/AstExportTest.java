@@ -0,0 +1,159 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import parseva.tools.AstExporter.Column;
+
+public class AstExportTest {
+
+    private static final String FIRST = """
+        class A {
+            int count = 1;
+            int next() { return count + 1; }
+        }
+        """;
+
+    private static final String SECOND = """
+        interface B {
+            String name();
+        }
+        """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testColumnsMatchTrees() throws IOException {
+        final AstTree first = AstTree.parse(CharStreams.fromString(FIRST));
+        final AstTree second = AstTree.parse(CharStreams.fromString(SECOND));
+        final String output = directory.resolve("trees.ast").toString();
+        // small blocks, so every column spans several of them
+        try (AstExporter exporter = new AstExporter(output, 16)) {
+            exporter.add("A.java", first);
+            exporter.add("B.java", second);
+        }
+
+        try (AstColumnReader reader = AstColumnReader.open(output)) {
+            assertEquals(first.size() + second.size(), reader.getRowCount());
+            assertEquals(List.of("A.java", "B.java"), reader.getFiles());
+
+            final int[] types = reader.readColumn(Column.TYPE);
+            final int[] parents = reader.readColumn(Column.PARENT);
+            final int[] depths = reader.readColumn(Column.DEPTH);
+            final int[] lines = reader.readColumn(Column.LINE);
+            final int[] columns = reader.readColumn(Column.COLUMN);
+            final int[] files = reader.readColumn(Column.FILE);
+            final int[] texts = reader.readColumn(Column.TEXT);
+            int row = 0;
+            for (AstTree tree : List.of(first, second)) {
+                for (int id = 0; id < tree.size(); id++, row++) {
+                    assertEquals(tree.getType(id), types[row]);
+                    assertEquals(NodeTypes.getName(tree.getType(id)), reader.getTypeName(types[row]));
+                    assertEquals(tree.getParentId(id), parents[row]);
+                    assertEquals(tree.getDepth(id), depths[row]);
+                    assertEquals(tree.getNode(id).getLineNumber(), lines[row]);
+                    assertEquals(tree.getNode(id).getColumnNumber(), columns[row]);
+                    assertEquals(tree == first ? 0 : 1, files[row]);
+                    if (texts[row] >= 0) {
+                        assertEquals(tree.getNode(id).getText(), reader.getText(texts[row]));
+                    }
+                }
+            }
+            // A, count, 1, next, B, String, name
+            assertEquals(7, reader.getDictionarySize());
+        }
+    }
+
+    @Test
+    public void testScanSingleColumn() throws IOException {
+        final String output = directory.resolve("trees.ast").toString();
+        final Path source = directory.resolve("A.java");
+        Files.writeString(source, FIRST, StandardCharsets.UTF_8);
+        AstExporter.export(List.of(source.toString()), output);
+
+        try (AstColumnReader reader = AstColumnReader.open(output)) {
+            final int[] depths = new int[1];
+            reader.scan(Column.DEPTH, depth -> depths[0] = Math.max(depths[0], depth));
+            final AstTree tree = AstTree.parseFile(source.toString());
+            int expected = 0;
+            for (int id = 0; id < tree.size(); id++) {
+                expected = Math.max(expected, tree.getDepth(id));
+            }
+            assertEquals(expected, depths[0]);
+            assertTrue(reader.getCompressedSize(Column.DEPTH) < Files.size(Path.of(output)));
+            assertArrayEquals(new int[tree.size()], reader.readColumn(Column.FILE));
+        }
+    }
+
+    @Test
+    public void testExportKeepsInputOrder() throws IOException {
+        final List<String> sources = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            final Path source = directory.resolve("C" + i + ".java");
+            Files.writeString(source, i % 2 == 0 ? FIRST : SECOND, StandardCharsets.UTF_8);
+            sources.add(source.toString());
+        }
+        final Path first = directory.resolve("first.ast");
+        final Path second = directory.resolve("second.ast");
+        AstExporter.export(sources, first.toString());
+        AstExporter.export(sources, second.toString());
+
+        try (AstColumnReader reader = AstColumnReader.open(first.toString())) {
+            assertEquals(sources, reader.getFiles());
+        }
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+    }
+
+    @Test
+    public void testFailedExportLeavesNoFile() throws IOException {
+        final Path source = directory.resolve("A.java");
+        Files.writeString(source, FIRST, StandardCharsets.UTF_8);
+        final Path output = directory.resolve("trees.ast");
+        final List<String> sources = List.of(source.toString(), directory.resolve("Missing.java").toString());
+
+        assertThrows(IOException.class, () -> AstExporter.export(sources, output.toString()));
+        assertFalse(Files.exists(output));
+    }
+
+    @Test
+    public void testLongText() throws IOException {
+        final String literal = "\"" + "x".repeat(70_000) + "\"";
+        final AstTree tree = AstTree.parse(CharStreams.fromString("class L { String s = " + literal + "; }"));
+        final String output = directory.resolve("trees.ast").toString();
+        try (AstExporter exporter = new AstExporter(output)) {
+            exporter.add("L.java", tree);
+        }
+
+        try (AstColumnReader reader = AstColumnReader.open(output)) {
+            final List<String> texts = new ArrayList<>();
+            for (int text : reader.readColumn(Column.TEXT)) {
+                if (text >= 0) {
+                    texts.add(reader.getText(text));
+                }
+            }
+            assertTrue(texts.contains(literal));
+        }
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        final Path other = directory.resolve("other.txt");
+        Files.writeString(other, "not an export, but long enough", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> AstColumnReader.open(other.toString()));
+    }
+}
@@ -0,0 +1,136 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import parseva.tools.api.ASTNode;
+
+public class AstQueryTest extends AbstractTestSupport {
+
+    private static final String SOURCE = """
+        class A {
+            A() {
+                try { init(); } catch (Exception e) { log(e); }
+            }
+            void run() {
+                Runnable r = () -> go(1);
+                try { stop(); } catch (Exception e) { }
+            }
+        }
+        """;
+
+    @Test
+    public void testDescendantAxis() {
+        final AstTree tree = AstTree.parse(CharStreams.fromString(SOURCE));
+        assertEquals(List.of("go"),
+            invokedNames(tree, "//lambdaExpression//methodInvocation|methodInvocation_lfno_primary"));
+        assertEquals(List.of("log"),
+            invokedNames(tree, "//constructorDeclaration//catchClause//methodInvocation"));
+        assertEquals(2, AstQuery.compile("//catchClause").select(tree).size());
+        assertEquals(1, AstQuery.compile("//constructorDeclaration//catchClause").select(tree).size());
+    }
+
+    @Test
+    public void testChildAndAncestorAxes() {
+        final AstTree tree = AstTree.parse(CharStreams.fromString(SOURCE));
+        assertEquals(1, AstQuery.compile("/*").select(tree).size());
+        assertEquals(List.of("init", "log", "stop"), invokedNames(tree, "//*/methodInvocation"));
+        assertEquals(List.of("init", "log", "go", "stop"),
+            invokedNames(tree, "//methodInvocation | methodInvocation_lfno_primary"));
+        final List<ASTNode> methods =
+            AstQuery.compile("//lambdaExpression/ancestor::methodDeclaration").select(tree);
+        assertEquals(1, methods.size());
+        assertEquals(5, methods.get(0).getLineNumber());
+    }
+
+    @Test
+    public void testMatchesFullTraversal() throws IOException {
+        final AstTree tree = AstTree.parseFile(getPath("InputPSVM.java"));
+        int identifiers = 0;
+        for (int id = 0; id < tree.size(); id++) {
+            if (tree.getType(id) == NodeTypes.getType("Identifier")) {
+                identifiers++;
+            }
+        }
+        assertEquals(identifiers, AstQuery.compile("//Identifier").select(tree).size());
+        assertEquals(identifiers, tree.getNodesOfType(NodeTypes.getType("Identifier")).size());
+    }
+
+    @Test
+    public void testMalformedQueries() {
+        assertThrows(IllegalArgumentException.class, () -> AstQuery.compile(""));
+        assertThrows(IllegalArgumentException.class, () -> AstQuery.compile("methodDeclaration"));
+        assertThrows(IllegalArgumentException.class, () -> AstQuery.compile("//noSuchRule"));
+        assertThrows(IllegalArgumentException.class, () -> AstQuery.compile("//ancestor::block"));
+    }
+
+    @Test
+    public void testCollapsedRules() {
+        for (String rule : List.of("importDeclaration", "classBodyDeclaration", "statement")) {
+            assertThrows(IllegalArgumentException.class, () -> AstQuery.compile("//" + rule));
+        }
+        final AstTree tree = AstTree.parse(CharStreams.fromString("import java.util.List;\n" + SOURCE));
+        assertEquals(1, AstQuery.compile("/ordinaryCompilation/singleTypeImportDeclaration")
+            .select(tree).size());
+        // Every rule that occurs in a tree is accepted
+        for (int id = 0; id < tree.size(); id++) {
+            assertTrue(NodeTypes.isKeptWhenFlattened(tree.getType(id)), NodeTypes.getName(tree.getType(id)));
+        }
+    }
+
+    @Test
+    public void testQuotedLiterals() {
+        final AstTree tree = AstTree.parse(CharStreams.fromString(
+            "class A { int f(int a) { return a / 2 | a; } Runnable r = A::new; boolean b = true || false; }"));
+        assertEquals(1, AstQuery.compile("//'/'").select(tree).size());
+        assertEquals(2, AstQuery.compile("//'||'|'|'").select(tree).size());
+        assertEquals(1, AstQuery.compile("//'::'").select(tree).size());
+        assertEquals(1, AstQuery.compile("//'::'/ancestor::normalClassDeclaration").select(tree).size());
+    }
+
+    @Test
+    public void testToStringUsesQueryNames() {
+        final AstTree tree = AstTree.parse(CharStreams.fromString("class A { int x; }"));
+        assertEquals(String.join("\n", "ordinaryCompilation",
+            "  normalClassDeclaration",
+            "    'class'",
+            "    Identifier A",
+            "    classBody",
+            "      '{'",
+            "      fieldDeclaration",
+            "        'int'",
+            "        Identifier x",
+            "        ';'",
+            "      '}'",
+            "  EOF", ""), tree.toString());
+        assertEquals(1, AstQuery.compile("/ordinaryCompilation/normalClassDeclaration/classBody/fieldDeclaration")
+            .select(tree).size());
+    }
+
+    private static List<String> invokedNames(AstTree tree, String query) {
+        return AstQuery.compile(query).select(tree).stream()
+            .map(node -> firstLeaf(node).getText())
+            .collect(Collectors.toList());
+    }
+
+    private static ASTNode firstLeaf(ASTNode node) {
+        ASTNode current = node;
+        while (current.getChildren().length > 0) {
+            current = current.getChildren()[0];
+        }
+        return current;
+    }
+
+    @Override
+    protected String getPackageLocation() {
+        return "parseva.tools.grammar/";
+    }
+}
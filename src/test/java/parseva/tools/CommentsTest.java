@@ -0,0 +1,68 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import parseva.tools.api.ASTNode;
+
+public class CommentsTest {
+
+    private static final String SOURCE = """
+        /* file header */
+        class A {
+            int count = 0; // trailing count
+            /** Javadoc of run. */
+            // second comment
+            void run() {
+            }
+        }
+        """;
+
+    @Test
+    public void testLeadingComments() {
+        final AstTree tree = AstTree.parse(CharStreams.fromString(SOURCE));
+        final ASTNode method = AstQuery.compile("//methodDeclaration").select(tree).get(0);
+        final ASTNode[] comments = method.getLeadingComments();
+
+        assertEquals(2, comments.length);
+        assertEquals("/** Javadoc of run. */", comments[0].getText());
+        assertEquals("// second comment", comments[1].getText());
+        assertEquals(4, comments[0].getLineNumber());
+        assertEquals("COMMENT", NodeTypes.getName(comments[0].getType()));
+        assertEquals(0, method.getTrailingComments().length);
+    }
+
+    @Test
+    public void testTrailingComments() {
+        final AstTree tree = AstTree.parse(CharStreams.fromString(SOURCE));
+        final ASTNode field = AstQuery.compile("//fieldDeclaration").select(tree).get(0);
+
+        assertEquals(0, field.getLeadingComments().length);
+        final ASTNode[] comments = field.getTrailingComments();
+        assertEquals(1, comments.length);
+        assertEquals("// trailing count", comments[0].getText());
+        assertEquals(3, comments[0].getLineNumber());
+        assertEquals(19, comments[0].getColumnNumber());
+    }
+
+    @Test
+    public void testFileHeader() {
+        final AstTree tree = AstTree.parse(CharStreams.fromString(SOURCE));
+        final List<ASTNode> classes = AstQuery.compile("//normalClassDeclaration").select(tree);
+
+        assertEquals("/* file header */", tree.getRoot().getLeadingComments()[0].getText());
+        assertEquals("/* file header */", classes.get(0).getLeadingComments()[0].getText());
+    }
+
+    @Test
+    public void testNoCommentsWithoutTokens() {
+        try (ParseSession session = ParseSession.open()) {
+            final AstTree tree = new AstTree(session.parse(CharStreams.fromString(SOURCE)));
+            assertEquals(0, tree.getRoot().getLeadingComments().length);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package parseva.tools;
+
+import java.util.function.IntFunction;
+
+/**
+ * Generates synthetic Java sources whose size grows with a single parameter,
+ * each stressing one dimension of the grammar or of {@link AstPrinter}.
+ */
+public final class CorpusGenerator {
+
+    private CorpusGenerator() {
+    }
+
+    /**
+     * A family of generated sources.
+     */
+    public enum Shape {
+        /** A class with {@code size} fields and methods. */
+        LONG_CLASS(CorpusGenerator::longClass),
+        /** A single method with {@code size} statements. */
+        HUGE_METHOD(CorpusGenerator::hugeMethod),
+        /** An expression nested {@code size} levels deep. */
+        NESTED_EXPRESSION(CorpusGenerator::nestedExpression),
+        /** A type with generic arguments nested {@code size} levels deep. */
+        NESTED_GENERICS(CorpusGenerator::nestedGenerics),
+        /** A call chain of {@code size} invocations. */
+        CALL_CHAIN(CorpusGenerator::callChain),
+        /** An array initializer with {@code size} elements. */
+        ARRAY_INITIALIZER(CorpusGenerator::arrayInitializer),
+        /** A method carrying {@code size} annotations. */
+        ANNOTATIONS(CorpusGenerator::annotations);
+
+        private final IntFunction<String> generator;
+
+        Shape(IntFunction<String> generator) {
+            this.generator = generator;
+        }
+
+        /**
+         * Generates a source of the given size.
+         *
+         * @param size shape parameter
+         * @return compilable Java source
+         */
+        public String generate(int size) {
+            return generator.apply(size);
+        }
+    }
+
+    private static String longClass(int size) {
+        final StringBuilder builder = new StringBuilder("class LongClass {\n");
+        for (int i = 0; i < size; i++) {
+            builder.append("    private int field").append(i).append(" = ").append(i).append(";\n")
+                .append("    int method").append(i).append("(int value) { return value + field")
+                .append(i).append("; }\n");
+        }
+        return builder.append("}\n").toString();
+    }
+
+    private static String hugeMethod(int size) {
+        final StringBuilder builder = new StringBuilder("class HugeMethod {\n    void run() {\n");
+        builder.append("        int total = 0;\n");
+        for (int i = 0; i < size; i++) {
+            builder.append("        if (total > ").append(i).append(") { total = total - ")
+                .append(i).append("; } else { total += foo(").append(i).append("); }\n");
+        }
+        return builder.append("    }\n}\n").toString();
+    }
+
+    private static String nestedExpression(int size) {
+        final StringBuilder builder = new StringBuilder("class NestedExpression {\n    int value = ");
+        for (int i = 0; i < size; i++) {
+            builder.append("f(").append(i).append(" + ");
+        }
+        builder.append('0');
+        for (int i = 0; i < size; i++) {
+            builder.append(')');
+        }
+        return builder.append(";\n}\n").toString();
+    }
+
+    private static String nestedGenerics(int size) {
+        final StringBuilder builder = new StringBuilder("class NestedGenerics {\n    ");
+        for (int i = 0; i < size; i++) {
+            builder.append("List<");
+        }
+        builder.append("String");
+        for (int i = 0; i < size; i++) {
+            builder.append('>');
+        }
+        return builder.append(" value;\n}\n").toString();
+    }
+
+    private static String callChain(int size) {
+        final StringBuilder builder = new StringBuilder("class CallChain {\n    void run() {\n        builder");
+        for (int i = 0; i < size; i++) {
+            builder.append("\n            .with").append(i).append('(').append(i).append(')');
+        }
+        return builder.append(";\n    }\n}\n").toString();
+    }
+
+    private static String arrayInitializer(int size) {
+        final StringBuilder builder = new StringBuilder("class ArrayInitializer {\n    int[] values = {");
+        for (int i = 0; i < size; i++) {
+            if (i % 16 == 0) {
+                builder.append("\n        ");
+            }
+            builder.append(i).append(", ");
+        }
+        return builder.append("\n    };\n}\n").toString();
+    }
+
+    private static String annotations(int size) {
+        final StringBuilder builder = new StringBuilder("class Annotations {\n");
+        for (int i = 0; i < size; i++) {
+            builder.append("    @Marker").append(i).append("(value = ").append(i).append(")\n");
+        }
+        return builder.append("    void annotated() {\n    }\n}\n").toString();
+    }
+}
@@ -0,0 +1,218 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import parseva.tools.Declaration.Kind;
+
+public class DeclarationIndexTest {
+
+    private static final String SHAPE = """
+        package geo;
+
+        import java.io.Serializable;
+
+        public abstract class Shape implements Serializable {
+            protected int x, y;
+            public abstract double area();
+        }
+        """;
+
+    private static final String CIRCLE = """
+        package geo.round;
+
+        import geo.Shape;
+        import static java.lang.Math.PI;
+
+        class Circle extends Shape implements @Fast Comparable<Circle> {
+            private double radius;
+            public double area() { return PI * radius * radius; }
+            public int compareTo(Circle other) { return 0; }
+            static class Center extends geo.Shape {
+                public double area() { return 0; }
+            }
+        }
+        """;
+
+    private static final String SQUARE = """
+        package geo;
+
+        class Square extends Shape {
+            double side;
+            public double area() { return side * side; }
+        }
+        """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testDeclarations() throws IOException {
+        final DeclarationIndex index = DeclarationIndex.build(writeFiles());
+        final List<Declaration> circle = index.getDeclarations(file("Circle.java"));
+
+        assertEquals(List.of("PACKAGE geo.round", "IMPORT geo.Shape", "STATIC_IMPORT java.lang.Math.PI",
+            "TYPE geo.round.Circle", "FIELD geo.round.Circle.radius", "METHOD geo.round.Circle.area",
+            "METHOD geo.round.Circle.compareTo", "TYPE geo.round.Circle.Center",
+            "METHOD geo.round.Circle.Center.area"), names(circle));
+        assertArrayEquals(new String[] {"Shape", "Comparable"}, circle.get(3).getSupertypes());
+        assertEquals(6, circle.get(3).getLineNumber());
+        assertEquals(6, circle.get(3).getColumnNumber());
+        assertEquals(List.of("PACKAGE geo", "IMPORT java.io.Serializable", "TYPE geo.Shape",
+            "FIELD geo.Shape.x", "FIELD geo.Shape.y", "METHOD geo.Shape.area"),
+            names(index.getDeclarations(file("Shape.java"))));
+        assertEquals(Kind.FIELD, index.findByName("y").get(0).getKind());
+        assertEquals(4, index.findByName("area").size());
+    }
+
+    @Test
+    public void testResolveAndSubtypes() throws IOException {
+        final DeclarationIndex index = DeclarationIndex.build(writeFiles());
+
+        assertEquals(file("Shape.java"), index.resolve(file("Circle.java"), "Shape").getFile());
+        assertEquals(file("Shape.java"), index.resolve(file("Square.java"), "Shape").getFile());
+        assertEquals("geo.round.Circle.Center", index.resolve(file("Circle.java"), "Circle.Center")
+            .getQualifiedName());
+        assertNull(index.resolve(file("Square.java"), "Circle"));
+
+        final List<String> subtypes = new ArrayList<>();
+        for (Declaration subtype : index.getSubtypes("geo.Shape")) {
+            subtypes.add(subtype.getQualifiedName());
+        }
+        subtypes.sort(null);
+        assertEquals(List.of("geo.Square", "geo.round.Circle", "geo.round.Circle.Center"), subtypes);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        final DeclarationIndex index = DeclarationIndex.build(writeFiles());
+        final String saved = directory.resolve("index.bin").toString();
+        index.save(saved);
+        final DeclarationIndex loaded = DeclarationIndex.load(saved);
+
+        assertEquals(index.getFiles(), loaded.getFiles());
+        assertEquals(index.size(), loaded.size());
+        for (String file : index.getFiles()) {
+            assertEquals(names(index.getDeclarations(file)), names(loaded.getDeclarations(file)));
+        }
+        assertEquals(3, loaded.getSubtypes("geo.Shape").size());
+
+        final String other = file("Shape.java");
+        assertThrows(IOException.class, () -> DeclarationIndex.load(other));
+    }
+
+    @Test
+    public void testReplaceAndRemove() throws IOException {
+        final DeclarationIndex index = DeclarationIndex.build(writeFiles());
+        index.add(file("Square.java"), AstTree.parse(
+            CharStreams.fromString("package geo;\nclass Square {}\n")));
+
+        assertEquals(2, index.getSubtypes("geo.Shape").size());
+        index.remove(file("Circle.java"));
+        assertEquals(0, index.getSubtypes("geo.Shape").size());
+        assertTrue(index.findByName("radius").isEmpty());
+        assertEquals(2, index.getFiles().size());
+    }
+
+    @Test
+    public void testImportHidesPackageType() {
+        final DeclarationIndex index = new DeclarationIndex();
+        index.add("p/List.java", AstTree.parse(CharStreams.fromString("""
+            package p;
+            class List {}
+            """)));
+        index.add("p/Names.java", AstTree.parse(CharStreams.fromString("""
+            package p;
+            import java.util.List;
+            class Names extends List {}
+            """)));
+        index.add("p/Other.java", AstTree.parse(CharStreams.fromString("""
+            package p;
+            class Other extends List {}
+            """)));
+
+        assertNull(index.resolve("p/Names.java", "List"));
+        assertEquals("p.List", index.resolve("p/Other.java", "List").getQualifiedName());
+        assertEquals(List.of("TYPE p.Other"), names(index.getSubtypes("p.List")));
+    }
+
+    @Test
+    public void testLocalAndAnonymousClassesAreSkipped() {
+        final DeclarationIndex index = new DeclarationIndex();
+        index.add("p/Outer.java", AstTree.parse(CharStreams.fromString("""
+            package p;
+            class Outer {
+                Runnable task = new Runnable() {
+                    int count;
+                    public void run() { }
+                };
+                void work() {
+                    class Local { int f; }
+                    new Thread() {
+                        public void run() { }
+                    }.start();
+                }
+                Outer() {
+                    class InConstructor { }
+                }
+                static class Member { int g; }
+            }
+            """)));
+
+        assertEquals(List.of("PACKAGE p", "TYPE p.Outer", "FIELD p.Outer.task", "METHOD p.Outer.work",
+            "TYPE p.Outer.Member", "FIELD p.Outer.Member.g"), names(index.getDeclarations("p/Outer.java")));
+    }
+
+    @Test
+    public void testAnnotationTypes() {
+        final DeclarationIndex index = new DeclarationIndex();
+        index.add("p/Fast.java", AstTree.parse(CharStreams.fromString("""
+            package p;
+            public @interface Fast {
+                int level() default 1;
+                @interface Nested { }
+            }
+            """)));
+
+        assertEquals(List.of("PACKAGE p", "TYPE p.Fast", "TYPE p.Fast.Nested"),
+            names(index.getDeclarations("p/Fast.java")));
+        assertEquals("p.Fast", index.resolve("p/Fast.java", "Fast").getQualifiedName());
+    }
+
+    private List<String> writeFiles() throws IOException {
+        final List<String> files = new ArrayList<>();
+        for (String source : List.of(SHAPE, CIRCLE, SQUARE)) {
+            final String name = source.contains("class Shape") ? "Shape.java"
+                : source.contains("class Circle") ? "Circle.java" : "Square.java";
+            Files.writeString(directory.resolve(name), source, StandardCharsets.UTF_8);
+            files.add(file(name));
+        }
+        return files;
+    }
+
+    private String file(String name) {
+        return directory.resolve(name).toString();
+    }
+
+    private static List<String> names(List<Declaration> declarations) {
+        final List<String> result = new ArrayList<>();
+        for (Declaration declaration : declarations) {
+            result.add(declaration.getKind() + " " + declaration.getQualifiedName());
+        }
+        return result;
+    }
+}
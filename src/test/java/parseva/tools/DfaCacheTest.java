@@ -0,0 +1,112 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+public class DfaCacheTest {
+
+    private static final String SOURCE = """
+        class A {
+            int f(int x) { return x * 2 + g(x); }
+        }
+        """;
+
+    private static final String OTHER_SOURCE = """
+        interface B<T> extends Comparable<T> {
+            default String describe(T[] values) {
+                switch (values.length) {
+                    case 0: return "none";
+                    default: return values[0] instanceof String ? "text" : "other";
+                }
+            }
+        }
+        """;
+
+    @Test
+    public void testStatisticsAndReset() {
+        final DfaCache cache = new DfaCache();
+        final AstTree tree = AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        final DfaCache.Statistics warm = cache.getStatistics();
+        assertTrue(warm.getTotalStateCount() > 0);
+        assertTrue(warm.getLexerStateCount() > 0);
+        assertTrue(warm.getTotalEstimatedBytes() > 0);
+        final int largest = warm.getLargestDecisions(1).get(0);
+        assertTrue(warm.getStateCount(largest) > 0);
+
+        cache.reset();
+        final DfaCache.Statistics cleared = cache.getStatistics();
+        assertEquals(1, cleared.getGeneration());
+        assertEquals(0, cleared.getTotalStateCount());
+        assertEquals(0, cleared.getTotalEstimatedBytes());
+
+        final AstTree again = AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        assertEquals(tree.getHash(0), again.getHash(0));
+        assertEquals(warm.getTotalStateCount(), cache.getStatistics().getTotalStateCount());
+    }
+
+    @Test
+    public void testPolicies() {
+        final DfaCache cache = new DfaCache();
+        cache.setPolicy(DfaCache.Policy.maxStates(1));
+        AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        assertEquals(0, cache.getStatistics().getGeneration());
+        AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        assertEquals(1, cache.getStatistics().getGeneration());
+
+        cache.setPolicy(DfaCache.Policy.maxAge(Duration.ZERO));
+        AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        assertEquals(2, cache.getStatistics().getGeneration());
+    }
+
+    @Test
+    public void testWarmUpAfterReset() {
+        final DfaCache cache = new DfaCache();
+        cache.setWarmUpCorpus(List.of(SOURCE));
+        cache.reset();
+        final long primed = cache.getStatistics().getTotalStateCount();
+        assertTrue(primed > 0);
+        AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        assertEquals(primed, cache.getStatistics().getTotalStateCount());
+    }
+
+    @Test
+    public void testMaxStatesIgnoresExplicitWarmUp() {
+        final DfaCache cache = new DfaCache();
+        cache.warmUp(List.of(SOURCE));
+        final long primed = cache.getStatistics().getTotalStateCount();
+        cache.setPolicy(DfaCache.Policy.maxStates(primed / 2));
+        AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        assertEquals(0, cache.getStatistics().getGeneration());
+        assertEquals(primed, cache.getStatistics().getTotalStateCount());
+    }
+
+    @Test
+    public void testMaxStatesCountsGrowthAfterWarmUp() throws InterruptedException {
+        final DfaCache cache = new DfaCache();
+        cache.setWarmUpCorpus(List.of(SOURCE));
+        cache.reset();
+        assertTrue(cache.getStatistics().getTotalStateCount() > 5);
+        cache.setPolicy(DfaCache.Policy.maxStates(5));
+        for (int i = 0; i < 5; i++) {
+            AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        }
+        assertEquals(1, cache.getStatistics().getGeneration());
+
+        // New decisions grow the generation, the reset runs in the background
+        AstTree.parse(CharStreams.fromString(OTHER_SOURCE), cache);
+        AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (cache.getStatistics().getGeneration() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, cache.getStatistics().getGeneration());
+        AstTree.parse(CharStreams.fromString(SOURCE), cache);
+        assertEquals(2, cache.getStatistics().getGeneration());
+    }
+}
@@ -0,0 +1,111 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.jupiter.api.Test;
+
+import parseva.tools.grammar.JavaLexer;
+import parseva.tools.grammar.JavaParser;
+
+public class ParseSessionTest extends AbstractTestSupport {
+
+    private static final String BROKEN = "class A { int }";
+
+    private static final String OTHER = "class B { void f() { g(1, 2); } }";
+
+    @Test
+    public void testOutputMatchesFreshInstances() throws Exception {
+        final String expected = readFile(getPath("InputPSVM.txt"));
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                final String source = i % 2 == 0 ? getPath("InputPSVM.java") : null;
+                results.add(pool.submit(() -> {
+                    try (ParseSession session = ParseSession.open()) {
+                        if (source == null) {
+                            return session.createAstString(CharStreams.fromString(OTHER));
+                        }
+                        return session.createAstString(CharStreams.fromFileName(source));
+                    }
+                }));
+            }
+            final JavaParser parser = new JavaParser(
+                new CommonTokenStream(new JavaLexer(CharStreams.fromString(OTHER))));
+            final String other = new AstPrinter(parser.compilationUnit()).toString();
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0 ? expected : other, toLfLineEnding(results.get(i).get()));
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCloseRestoresParserState() throws IOException {
+        try (ParseSession session = ParseSession.open()) {
+            session.getParser().removeErrorListeners();
+            session.getParser().addErrorListener(new BaseErrorListener());
+            session.getParser().setErrorHandler(new BailErrorStrategy());
+            assertThrows(ParseCancellationException.class,
+                () -> session.parse(CharStreams.fromString(BROKEN)));
+        }
+        try (ParseSession session = ParseSession.open()) {
+            assertEquals(List.of(ConsoleErrorListener.INSTANCE), session.getParser().getErrorListeners());
+            assertEquals(0, session.getParser().getTokenStream().size());
+            assertEquals(readFile(getPath("InputPSVM.txt")),
+                toLfLineEnding(session.createAstString(CharStreams.fromFileName(getPath("InputPSVM.java")))));
+        }
+    }
+
+    @Test
+    public void testCloseReleasesParseTree() throws InterruptedException {
+        final WeakReference<ParseTree> tree;
+        try (ParseSession session = ParseSession.open()) {
+            tree = new WeakReference<>(session.parse(CharStreams.fromString(OTHER)));
+        }
+        for (int i = 0; i < 50 && tree.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(tree.get());
+    }
+
+    @Test
+    public void testNestedAndClosedSessions() {
+        final ParseSession outer = ParseSession.open();
+        final ParseSession inner = ParseSession.open();
+        assertNotSame(outer, inner);
+        inner.close();
+        outer.close();
+        assertThrows(IllegalStateException.class, () -> outer.parse(CharStreams.fromString(OTHER)));
+        try (ParseSession again = ParseSession.open()) {
+            assertSame(outer, again);
+        }
+    }
+
+    @Override
+    protected String getPackageLocation() {
+        return "parseva.tools.grammar/";
+    }
+}
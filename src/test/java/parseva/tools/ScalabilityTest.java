@@ -0,0 +1,239 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import parseva.tools.CorpusGenerator.Shape;
+
+/**
+ * Parses, flattens and prints every generated shape at several sizes and fits
+ * the growth exponent of time and allocation of each stage against its input:
+ * the source length for parsing and flattening, the printed length for
+ * printing. A linear stage has an exponent close to 1, a quadratic one close
+ * to 2. A fitted exponent is used rather than the ratio between two sizes
+ * because single timings are noisy and cache effects bend small sizes.
+ *
+ * <p>Allocation is deterministic and checked on every build. Time is the CPU
+ * time of the measuring thread, so garbage collection and JIT compilation
+ * running on other threads do not count, but it still depends on the machine;
+ * it is only checked when running with {@code -Dscalability.time=true}.</p>
+ */
+public class ScalabilityTest {
+
+    private static final int[] SCALES = {1, 2, 4, 8};
+
+    private static final double MAX_ALLOCATION_EXPONENT = 1.2;
+
+    private static final double MAX_TIME_EXPONENT = 1.5;
+
+    private static final int ALLOCATION_RUNS = 2;
+
+    private static final int TIME_RUNS = 3;
+
+    // Recorded parse exponents, plus a margin for noise, of the shapes the grammar
+    // parses superlinearly: adaptive prediction rescans the nested construct at
+    // every level. They are baselines that must not get worse; lower them when
+    // parsing improves.
+    private static final double NESTED_EXPRESSION_ALLOCATION_EXPONENT = 1.85;
+
+    private static final double NESTED_EXPRESSION_TIME_EXPONENT = 1.9;
+
+    private static final double NESTED_GENERICS_ALLOCATION_EXPONENT = 2.6;
+
+    private static final double NESTED_GENERICS_TIME_EXPONENT = 2.5;
+
+    private static final long STACK_SIZE = 512L * 1024 * 1024;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @ParameterizedTest
+    @EnumSource(Shape.class)
+    public void testGeneratedSourcesParse(Shape shape) {
+        try (ParseSession session = ParseSession.open()) {
+            session.parse(CharStreams.fromString(shape.generate(20)));
+            assertEquals(0, session.getParser().getNumberOfSyntaxErrors(), shape.name());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Shape.class)
+    public void testLinearAllocation(Shape shape) throws InterruptedException {
+        runChecked(shape, false);
+    }
+
+    @Tag("scalability")
+    @EnabledIfSystemProperty(named = "scalability.time", matches = "true")
+    @ParameterizedTest
+    @EnumSource(Shape.class)
+    public void testLinearTime(Shape shape) throws InterruptedException {
+        runChecked(shape, true);
+    }
+
+    private static void runChecked(Shape shape, boolean checkTime) throws InterruptedException {
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final Thread worker = new Thread(null,
+            () -> failure.set(checkGrowth(shape, checkTime)), "scalability", STACK_SIZE);
+        worker.start();
+        worker.join();
+        assertTrue(failure.get() == null, failure.get());
+    }
+
+    // Allocation needs no large inputs to smooth out timer noise
+    private static int baseSize(Shape shape, boolean checkTime) {
+        return switch (shape) {
+            case LONG_CLASS, HUGE_METHOD -> checkTime ? 250 : 60;
+            case ARRAY_INITIALIZER -> checkTime ? 8000 : 2000;
+            case NESTED_EXPRESSION -> 5;
+            case NESTED_GENERICS -> 10;
+            default -> checkTime ? 1000 : 250;
+        };
+    }
+
+    private static double parseAllocationLimit(Shape shape) {
+        return switch (shape) {
+            case NESTED_EXPRESSION -> NESTED_EXPRESSION_ALLOCATION_EXPONENT;
+            case NESTED_GENERICS -> NESTED_GENERICS_ALLOCATION_EXPONENT;
+            default -> MAX_ALLOCATION_EXPONENT;
+        };
+    }
+
+    private static double parseTimeLimit(Shape shape) {
+        return switch (shape) {
+            case NESTED_EXPRESSION -> NESTED_EXPRESSION_TIME_EXPONENT;
+            case NESTED_GENERICS -> NESTED_GENERICS_TIME_EXPONENT;
+            default -> MAX_TIME_EXPONENT;
+        };
+    }
+
+    private static String checkGrowth(Shape shape, boolean checkTime) {
+        final int base = baseSize(shape, checkTime);
+        final int runs = checkTime ? TIME_RUNS : ALLOCATION_RUNS;
+        // the first round only warms up the JIT and the DFA, at the largest
+        // size so that no later size meets new prediction states
+        measureAll(shape.generate(base * SCALES[SCALES.length - 1]), 1);
+
+        final double[] sourceLengths = new double[SCALES.length];
+        final double[] outputLengths = new double[SCALES.length];
+        final Measurement[][] measurements = new Measurement[SCALES.length][];
+        for (int i = 0; i < SCALES.length; i++) {
+            final String source = shape.generate(base * SCALES[i]);
+            measurements[i] = measureAll(source, runs);
+            sourceLengths[i] = source.length();
+            outputLengths[i] = measurements[i][2].outputLength;
+        }
+
+        final StringBuilder failures = new StringBuilder();
+        if (checkTime) {
+            checkTime(failures, shape + " parse", sourceLengths, measurements, 0, parseTimeLimit(shape));
+            checkTime(failures, shape + " flatten", sourceLengths, measurements, 1, MAX_TIME_EXPONENT);
+            checkTime(failures, shape + " print", outputLengths, measurements, 2, MAX_TIME_EXPONENT);
+        }
+        else {
+            checkAllocation(failures, shape + " parse", sourceLengths, measurements, 0,
+                parseAllocationLimit(shape));
+            checkAllocation(failures, shape + " flatten", sourceLengths, measurements, 1,
+                MAX_ALLOCATION_EXPONENT);
+            checkAllocation(failures, shape + " print", outputLengths, measurements, 2,
+                MAX_ALLOCATION_EXPONENT);
+        }
+        return failures.length() == 0 ? null : failures.toString();
+    }
+
+    private static Measurement[] measureAll(String source, int runs) {
+        final AtomicReference<ParseTree> tree = new AtomicReference<>();
+        final Measurement parse = measure(runs, () -> {
+            try (ParseSession session = ParseSession.open()) {
+                tree.set(session.parse(CharStreams.fromString(source)));
+            }
+            return "";
+        });
+        final Measurement flatten = measure(runs, () -> {
+            new AstTree(tree.get());
+            return "";
+        });
+        final Measurement print = measure(runs, () -> new AstPrinter(tree.get()).toString());
+        return new Measurement[] {parse, flatten, print};
+    }
+
+    private static Measurement measure(int runs, Supplier<String> stage) {
+        long nanos = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+        int outputLength = 0;
+        for (int run = 0; run < runs; run++) {
+            final long startBytes = THREADS.getCurrentThreadAllocatedBytes();
+            final long start = THREADS.getCurrentThreadCpuTime();
+            outputLength = stage.get().length();
+            nanos = Math.min(nanos, THREADS.getCurrentThreadCpuTime() - start);
+            bytes = Math.min(bytes, THREADS.getCurrentThreadAllocatedBytes() - startBytes);
+        }
+        return new Measurement(nanos, bytes, outputLength);
+    }
+
+    private static void checkAllocation(StringBuilder failures, String stage, double[] inputLengths,
+                                        Measurement[][] measurements, int stageIndex, double limit) {
+        final double[] bytes = new double[inputLengths.length];
+        for (int i = 0; i < inputLengths.length; i++) {
+            bytes[i] = Math.max(measurements[i][stageIndex].bytes, 1);
+        }
+        final double allocationExponent = exponent(inputLengths, bytes);
+        if (allocationExponent > limit) {
+            failures.append(String.format("%s: allocation grows with exponent %.2f, limit %.2f%n",
+                stage, allocationExponent, limit));
+        }
+    }
+
+    private static void checkTime(StringBuilder failures, String stage, double[] inputLengths,
+                                  Measurement[][] measurements, int stageIndex, double limit) {
+        final double[] nanos = new double[inputLengths.length];
+        for (int i = 0; i < inputLengths.length; i++) {
+            nanos[i] = Math.max(measurements[i][stageIndex].nanos, 1);
+        }
+        final double timeExponent = exponent(inputLengths, nanos);
+        if (timeExponent > limit) {
+            failures.append(String.format("%s: time grows with exponent %.2f, limit %.2f%n",
+                stage, timeExponent, limit));
+        }
+    }
+
+    // Least squares slope of log(cost) over log(input).
+    private static double exponent(double[] inputs, double[] costs) {
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            meanX += Math.log(inputs[i]) / inputs.length;
+            meanY += Math.log(costs[i]) / inputs.length;
+        }
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            final double x = Math.log(inputs[i]) - meanX;
+            covariance += x * (Math.log(costs[i]) - meanY);
+            variance += x * x;
+        }
+        return covariance / variance;
+    }
+
+    private static final class Measurement {
+        private final long nanos;
+        private final long bytes;
+        private final int outputLength;
+
+        Measurement(long nanos, long bytes, int outputLength) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+            this.outputLength = outputLength;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package parseva.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+import parseva.tools.api.ASTNode;
+import parseva.tools.grammar.JavaLexer;
+import parseva.tools.grammar.JavaParser;
+
+public class TokenTextTest {
+
+    private static final String SOURCE = """
+        class A {
+            String name = "😀 smile";
+            int count = name.length() + count;
+        }
+        """;
+
+    @Test
+    public void testTextMatchesTokens() {
+        final JavaParser parser = new JavaParser(
+            new CommonTokenStream(new JavaLexer(CharStreams.fromString(SOURCE))));
+        final AstTree tree = new AstTree(parser.compilationUnit());
+        final List<? extends Token> tokens = ((CommonTokenStream) parser.getTokenStream()).getTokens();
+
+        int token = 0;
+        for (int id = 0; id < tree.size(); id++) {
+            final ASTNode node = tree.getNode(id);
+            if (!NodeTypes.isRule(node.getType())) {
+                assertEquals(tokens.get(token).getText(), node.getText());
+                assertEquals(tokens.get(token).getText(), node.getTextView().toString());
+                token++;
+            }
+        }
+        assertEquals(tokens.size(), token);
+    }
+
+    @Test
+    public void testKeywordsAndIdentifiersShareStrings() {
+        final IdentifierTable identifiers = new IdentifierTable();
+        final AstTree first = parse(identifiers);
+        final AstTree second = parse(identifiers);
+        final List<ASTNode> firstNames = first.getNodesOfType(JavaLexer.Identifier);
+        final List<ASTNode> secondNames = second.getNodesOfType(JavaLexer.Identifier);
+
+        // A, String, name, count, name, length, count
+        assertSame(firstNames.get(2).getText(), firstNames.get(4).getText());
+        assertSame(firstNames.get(2).getText(), secondNames.get(2).getText());
+        assertEquals(5, identifiers.size());
+        assertSame(first.getNodesOfType(JavaLexer.CLASS).get(0).getText(),
+            second.getNodesOfType(JavaLexer.CLASS).get(0).getText());
+
+        final AstTree plain = AstTree.parse(CharStreams.fromString(SOURCE));
+        final ASTNode name = plain.getNodesOfType(JavaLexer.Identifier).get(2);
+        assertEquals("name", name.getTextView().toString());
+        assertNotSame(name.getText(), name.getText());
+    }
+
+    private static AstTree parse(IdentifierTable identifiers) {
+        final JavaParser parser = new JavaParser(
+            new CommonTokenStream(new JavaLexer(CharStreams.fromString(SOURCE))));
+        return new AstTree(parser.compilationUnit(), identifiers);
+    }
+}